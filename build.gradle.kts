@@ -37,6 +37,9 @@ application {
 }
 
 dependencies {
+    // Rules, AI, saving and the network protocol, everything without a window
+    implementation(project(":chess-core"))
+
     implementation("org.openjfx:javafx-controls:21:${platform()}")
     implementation("org.openjfx:javafx-fxml:21:${platform()}")
     implementation("org.openjfx:javafx-swing:21:${platform()}")
@@ -57,4 +60,4 @@ fun platform(): String =
         "mac os x" -> "mac"
         "linux" -> "linux"
         else -> "win"
-    }
\ No newline at end of file
+    }
@@ -0,0 +1,34 @@
+// Rules engine, AI, persistence and network protocol without JavaFX or jMonkeyEngine,
+// so servers and batch jobs can use it on its own: ./gradlew :chess-core:jar
+plugins {
+    `java-library`
+}
+
+// Move generator check/benchmark: ./gradlew perft --args="--suite"
+tasks.register<JavaExec>("perft") {
+    group = "verification"
+    description = "Runs perft on a FEN position or on the perft regression suite"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.marcos.chess.Perft")
+}
+
+// Search speed and thread scaling: ./gradlew bench --args="--depth 9 --threads 1,2,4,8"
+tasks.register<JavaExec>("bench") {
+    group = "verification"
+    description = "Searches a set of positions to a fixed depth with 1, 2, 4 ... threads"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.marcos.chess.Bench")
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    testImplementation("org.junit.jupiter:junit-jupiter:5.10.2")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+tasks.test {
+    useJUnitPlatform()
+}
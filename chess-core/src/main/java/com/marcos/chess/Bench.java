@@ -0,0 +1,180 @@
+package com.marcos.chess;
+
+import com.marcos.chess.engine.MoveOrder;
+import com.marcos.chess.engine.Moves;
+import com.marcos.chess.engine.ParallelSearch;
+import com.marcos.chess.engine.TranspositionTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+Headless search benchmark: how the Lazy SMP search scales with the number of threads.
+
+Every thread count searches the same positions to the same depth with a cleared table, and for each
+count it prints the time the main thread needed to finish that depth (time to depth), the nodes all
+threads searched together and the nodes per second, both also relative to one thread. The last
+column is how often the first move tried at a node was the one that cut off (main thread only), the
+higher the better the move ordering, and "q %" is the share of quiescence nodes in the main thread.
+The cutoffs per ordering stage are printed at the end.
+
+Before anything is measured the positions are searched at the full depth with one thread until two
+passes in a row take about the same time, so the JIT is done compiling the search. Then every thread
+count is run several times and the run with the median time is the one printed.
+
+    bench [--depth d] [--threads 1,2,4,8,16,32] [--runs n] [--hash mb] [fen]
+
+From gradle: ./gradlew bench --args="--depth 9 --threads 1,2,4,8,16,32 --runs 5 --hash 1024"
+Run it on the machine the numbers are for, with nothing else busy.
+ */
+public class Bench {
+
+    private static final String[] POSITIONS = {
+            Fen.START_POSITION,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "2r3k1/p4p2/3Rp2p/1p2P1pK/8/1P4P1/P3Q2P/1q6 b - - 0 1"
+    };
+
+    // Warm-up stops once a pass is within this share of the one before, or after MAX_WARM_UP passes
+    private static final double SETTLED = 0.05;
+    private static final int MAX_WARM_UP = 10;
+
+    public static void main(String[] args) {
+        int depth = 7;
+        int hashMegabytes = 256;
+        int runs = 3;
+        int[] threadCounts = {1, 2, 4, 8, 16, 32};
+        List<String> positions = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--depth" -> depth = Integer.parseInt(args[++i]);
+                case "--hash" -> hashMegabytes = Integer.parseInt(args[++i]);
+                case "--runs" -> runs = Math.max(1, Integer.parseInt(args[++i]));
+                case "--threads" -> {
+                    String[] parts = args[++i].split(",");
+                    threadCounts = new int[parts.length];
+                    for (int j = 0; j < parts.length; j++) {
+                        threadCounts[j] = Integer.parseInt(parts[j].trim());
+                    }
+                }
+                default -> positions.add(args[i]);
+            }
+        }
+        if (positions.isEmpty()) {
+            positions = List.of(POSITIONS);
+        } else {
+            positions = List.of(String.join(" ", positions));
+        }
+
+        System.out.println("Depth " + depth + ", " + positions.size() + " positions, " + hashMegabytes + " MB hash, "
+                + Runtime.getRuntime().availableProcessors() + " cores, median of " + runs + " runs");
+
+        TranspositionTable table = new TranspositionTable(hashMegabytes);
+        int passes = warmUp(table, positions, depth);
+        System.out.println("Warmed up in " + passes + " passes");
+        System.out.println();
+        System.out.printf("%8s %12s %14s %12s %10s %10s %8s %6s%n", "threads", "time (ms)", "nodes", "nodes/sec", "speedup", "nps x", "fh1 %", "q %");
+
+        long baseTime = 0;
+        long baseSpeed = 0;
+        long[] stageCutoffs = new long[MoveOrder.STAGE_NAMES.length];
+
+        for (int threads : threadCounts) {
+            ParallelSearch search = new ParallelSearch(threads, table);
+            search.setTimeLimit(0);
+            search.setMaxDepth(depth);
+
+            Run[] results = new Run[runs];
+            for (int i = 0; i < runs; i++) {
+                results[i] = run(search, table, positions, threadCounts.length == 1 && i == 0);
+            }
+            search.shutdown();
+            Arrays.sort(results, (a, b) -> Long.compare(a.time, b.time));
+            Run median = results[runs / 2];
+
+            for (int i = 0; i < stageCutoffs.length; i++) {
+                stageCutoffs[i] += median.stageCutoffs[i];
+            }
+
+            long millis = Math.max(median.time / 1_000_000, 1);
+            long speed = median.nodes * 1000 / millis;
+            if (baseTime == 0) {
+                baseTime = millis;
+                baseSpeed = Math.max(speed, 1);
+            }
+            System.out.printf("%8d %12d %14d %12d %10.2f %10.2f %8.1f %6.1f%n", threads, millis, median.nodes, speed,
+                    (double) baseTime / millis, (double) speed / baseSpeed, 100.0 * median.firstMoveCutoffs / Math.max(median.cutoffs, 1),
+                    100.0 * median.quiescenceNodes / Math.max(median.mainNodes, 1));
+        }
+
+        long allCutoffs = Math.max(1, Arrays.stream(stageCutoffs).sum());
+        System.out.println();
+        System.out.print("Cutoffs by stage:");
+        for (int i = 0; i < stageCutoffs.length; i++) {
+            System.out.printf(" %s %.1f%%", MoveOrder.STAGE_NAMES[i], 100.0 * stageCutoffs[i] / allCutoffs);
+        }
+        System.out.println();
+    }
+
+    // One pass over all the positions, the table is cleared before each one
+    private static Run run(ParallelSearch search, TranspositionTable table, List<String> positions, boolean printMoves) {
+        Run run = new Run();
+        for (String fen : positions) {
+            Game game = Fen.load(fen);
+            table.clear();
+
+            long start = System.nanoTime();
+            int move = search.search(game.getState(), null, null);
+            run.time += System.nanoTime() - start;
+            run.nodes += search.getNodes();
+
+            run.mainNodes += search.getMain().getNodes();
+            run.quiescenceNodes += search.getMain().getQuiescenceNodes();
+            MoveOrder order = search.getMain().getMoveOrder();
+            run.cutoffs += order.getCutoffs();
+            run.firstMoveCutoffs += order.getFirstMoveCutoffs();
+            long[] stages = order.getStageCutoffs();
+            for (int i = 0; i < stages.length; i++) {
+                run.stageCutoffs[i] += stages[i];
+            }
+
+            if (printMoves) {
+                System.out.println("  " + fen + ": " + Moves.toUci(move) + " (" + search.getMain().getScore() + ")");
+            }
+        }
+        return run;
+    }
+
+    // Give the JIT a go at the search first, or the first thread count pays for compiling it.
+    // Same depth as the benchmark, repeated until a pass takes about as long as the one before
+    private static int warmUp(TranspositionTable table, List<String> positions, int depth) {
+        ParallelSearch search = new ParallelSearch(1, table);
+        search.setTimeLimit(0);
+        search.setMaxDepth(depth);
+        long previous = run(search, table, positions, false).time;
+        int passes = 1;
+        while (passes < MAX_WARM_UP) {
+            long time = run(search, table, positions, false).time;
+            passes++;
+            if (Math.abs(time - previous) <= SETTLED * previous) break;
+            previous = time;
+        }
+        search.shutdown();
+        return passes;
+    }
+
+    private static class Run {
+        long time;
+        long nodes;
+        long cutoffs;
+        long firstMoveCutoffs;
+        long mainNodes;
+        long quiescenceNodes;
+        final long[] stageCutoffs = new long[MoveOrder.STAGE_NAMES.length];
+    }
+}
@@ -0,0 +1,206 @@
+package com.marcos.chess;
+
+import com.marcos.chess.engine.BoardState;
+import com.marcos.chess.engine.Position;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+Reads and writes positions in Forsyth-Edwards Notation, for example the starting position:
+    rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1
+
+The board part goes from a8 to h1 (row 0 of Game down to row 7). The two move clocks at the
+end are optional, anything after the en passant field that is not a number (EPD operations
+like ";D1 20") is ignored.
+
+The parser works on bytes and goes straight to a Position without splitting strings, so
+PositionLoader can feed it lines of a file without creating garbage for each one.
+ */
+public final class Fen {
+
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    // Indexed by BoardState.pieceIndex
+    private static final String PIECE_LETTERS = "PRNBQKprnbqk";
+    // The other way around, letter -> piece index, -1 for anything that is not a piece
+    private static final byte[] PIECE_INDEX = new byte[128];
+
+    static {
+        Arrays.fill(PIECE_INDEX, (byte) -1);
+        for (int i = 0; i < PIECE_LETTERS.length(); i++) {
+            PIECE_INDEX[PIECE_LETTERS.charAt(i)] = (byte) i;
+        }
+    }
+
+    private Fen() {
+    }
+
+    public static Game load(String fen) {
+        return Game.fromPosition(parse(fen));
+    }
+
+    public static String write(Game game) {
+        return write(Position.of(game.getState()));
+    }
+
+    public static Position parse(String fen) {
+        byte[] bytes = fen.getBytes(StandardCharsets.US_ASCII);
+        return parse(bytes, 0, bytes.length);
+    }
+
+    public static Position parse(byte[] buf, int start, int end) {
+        int pos = skipSpaces(buf, start, end);
+
+        // Board, ranks come from 8 down to 1 so every rank goes in front of the ones already read
+        long occupied = 0L;
+        long low = 0L;
+        long high = 0L;
+        long rankPieces = 0L;
+        int rankCount = 0;
+        int total = 0;
+        int rank = 7;
+        int file = 0;
+
+        for (; pos < end && !isSpace(buf[pos]); pos++) {
+            byte c = buf[pos];
+            if (c == '/') {
+                if (file != 8 || rank == 0) throw error(buf, start, end, "bad board");
+                total += rankCount;
+                if (total > 32) throw error(buf, start, end, "too many pieces");
+                high = rankCount == 0 ? high : (high << (rankCount * 4)) | (low >>> (64 - rankCount * 4));
+                low = (rankCount == 0 ? low : low << (rankCount * 4)) | rankPieces;
+                rankPieces = 0L;
+                rankCount = 0;
+                rank--;
+                file = 0;
+            } else if (c >= '1' && c <= '8') {
+                file += c - '0';
+                if (file > 8) throw error(buf, start, end, "bad board");
+            } else {
+                int piece = c >= 0 ? PIECE_INDEX[c] : -1;
+                if (piece < 0 || file > 7) throw error(buf, start, end, "bad board");
+                occupied |= 1L << (rank * 8 + file);
+                rankPieces |= (long) piece << (rankCount * 4);
+                rankCount++;
+                file++;
+            }
+        }
+        if (file != 8 || rank != 0) throw error(buf, start, end, "bad board");
+        total += rankCount;
+        if (total > 32) throw error(buf, start, end, "too many pieces");
+        high = rankCount == 0 ? high : (high << (rankCount * 4)) | (low >>> (64 - rankCount * 4));
+        low = (rankCount == 0 ? low : low << (rankCount * 4)) | rankPieces;
+
+        // Side to move
+        pos = skipSpaces(buf, pos, end);
+        if (pos >= end || (buf[pos] != 'w' && buf[pos] != 'b')) throw error(buf, start, end, "bad side to move");
+        int side = buf[pos++] == 'b' ? -1 : 1;
+
+        // Castling rights
+        pos = skipSpaces(buf, pos, end);
+        int castling = 0;
+        for (; pos < end && !isSpace(buf[pos]); pos++) {
+            switch (buf[pos]) {
+                case 'K' -> castling |= BoardState.WHITE_KINGSIDE;
+                case 'Q' -> castling |= BoardState.WHITE_QUEENSIDE;
+                case 'k' -> castling |= BoardState.BLACK_KINGSIDE;
+                case 'q' -> castling |= BoardState.BLACK_QUEENSIDE;
+                case '-' -> { }
+                default -> throw error(buf, start, end, "bad castling rights");
+            }
+        }
+
+        // En passant square
+        pos = skipSpaces(buf, pos, end);
+        int enPassant = -1;
+        if (pos < end && buf[pos] == '-') {
+            pos++;
+        } else if (pos + 1 < end && buf[pos] >= 'a' && buf[pos] <= 'h' && buf[pos + 1] >= '1' && buf[pos + 1] <= '8') {
+            enPassant = (buf[pos + 1] - '1') * 8 + (buf[pos] - 'a');
+            pos += 2;
+        } else {
+            throw error(buf, start, end, "bad en passant square");
+        }
+
+        // Optional clocks
+        int halfmove = 0;
+        int fullmove = 1;
+        pos = skipSpaces(buf, pos, end);
+        if (pos < end && isDigit(buf[pos])) {
+            halfmove = 0;
+            for (; pos < end && isDigit(buf[pos]); pos++) {
+                halfmove = halfmove * 10 + buf[pos] - '0';
+            }
+            pos = skipSpaces(buf, pos, end);
+            if (pos < end && isDigit(buf[pos])) {
+                fullmove = 0;
+                for (; pos < end && isDigit(buf[pos]); pos++) {
+                    fullmove = fullmove * 10 + buf[pos] - '0';
+                }
+            }
+        }
+
+        return new Position(occupied, low, high, BoardState.packState(side, castling, enPassant, halfmove, fullmove));
+    }
+
+    public static String write(Position position) {
+        StringBuilder sb = new StringBuilder(90);
+
+        for (int rank = 7; rank >= 0; rank--) {
+            int empty = 0;
+            for (int file = 0; file < 8; file++) {
+                int piece = position.pieceAt(rank * 8 + file);
+                if (piece == 0) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+                sb.append(PIECE_LETTERS.charAt(BoardState.pieceIndex(piece)));
+            }
+            if (empty > 0) sb.append(empty);
+            if (rank > 0) sb.append('/');
+        }
+
+        sb.append(position.sideToMove() < 0 ? " b " : " w ");
+
+        int castling = position.castlingRights();
+        if (castling == 0) sb.append('-');
+        if ((castling & BoardState.WHITE_KINGSIDE) != 0) sb.append('K');
+        if ((castling & BoardState.WHITE_QUEENSIDE) != 0) sb.append('Q');
+        if ((castling & BoardState.BLACK_KINGSIDE) != 0) sb.append('k');
+        if ((castling & BoardState.BLACK_QUEENSIDE) != 0) sb.append('q');
+
+        int enPassant = position.enPassantSquare();
+        sb.append(' ');
+        if (enPassant < 0) {
+            sb.append('-');
+        } else {
+            sb.append((char) ('a' + (enPassant & 7))).append((char) ('1' + (enPassant >>> 3)));
+        }
+
+        sb.append(' ').append(position.halfmoveClock()).append(' ').append(position.fullmoveNumber());
+        return sb.toString();
+    }
+
+    private static int skipSpaces(byte[] buf, int pos, int end) {
+        while (pos < end && isSpace(buf[pos])) pos++;
+        return pos;
+    }
+
+    private static boolean isSpace(byte c) {
+        return c == ' ' || c == '\t';
+    }
+
+    private static boolean isDigit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static IllegalArgumentException error(byte[] buf, int start, int end, String problem) {
+        return new IllegalArgumentException("Not a FEN position (" + problem + "): "
+                + new String(buf, start, end - start, StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,675 @@
+package com.marcos.chess;
+
+import com.marcos.chess.engine.Bitboards;
+import com.marcos.chess.engine.BoardState;
+import com.marcos.chess.engine.MoveGenerator;
+import com.marcos.chess.engine.MoveList;
+import com.marcos.chess.engine.Moves;
+import com.marcos.chess.engine.Position;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class Game {
+
+    /*
+    White Pieces:
+        - Pawn = 1
+        - Rook = 2
+        - Knight = 3
+        - Bishop = 4
+        - Queen = 5
+        - King = 6
+
+    Black Pieces:
+        - Pawn = -1
+        - Rook = -2
+        - Knight = -3
+        - Bishop = -4
+        - Queen = -5
+        - King = -6
+    */
+
+
+    private int[][] board;
+    // Bitboard copy of the board, every rule query is answered from here
+    private final BoardState state = new BoardState();
+    private final MoveGenerator generator = new MoveGenerator();
+
+    private int lastMoveFromX = -1;
+    private int lastMoveFromY = -1;
+    private int lastMoveToX = -1;
+    private int lastMoveToY = -1;
+    private int lastMovePiece = 0;
+
+    // Pieces on the board after the last updateLastMove, one less after it means the move was a capture
+    private int piecesOnBoard = 32;
+
+    // Last-move fields saved by makeMove so unmakeMove can restore them
+    private int[] lastMoveHistory = new int[256];
+    private int[] lastPieceHistory = new int[256];
+    private int historySize = 0;
+
+    // Zobrist keys of every position the game went through, the current one last.
+    // Only the part since the last capture or pawn move can repeat, so that is all getStatus() looks at
+    private long[] positionHistory = new long[256];
+    private int positionCount = 0;
+
+    // Legal moves of the side to move in the position with key legalMovesKey, plus their targets
+    // by from square. Worked out at most once per position and shared by highlighting, drop and
+    // network validation, check rendering and the AI root, so mouse events do not generate again
+    private final MoveList legalMoves = new MoveList();
+    private final long[] legalTargetsFrom = new long[64];
+    private long legalMovesKey;
+    private boolean legalMovesValid = false;
+    private boolean legalMovesInCheck;
+
+    // Last settled position (after a load or a finished move), replaced as a whole so other threads
+    // (renderers, savers, search workers) always read a consistent one without locking the game.
+    // Moves tried with makeMove/unmakeMove never show up here
+    private volatile Position snapshot;
+
+    // Moves played for real (UI moves and playMove), for undo/redo and going through the game.
+    // lastMoveRecorded stops switchPlayer from recording the same move twice
+    private final GameRecord record = new GameRecord();
+    private boolean lastMoveRecorded = true;
+
+    public Game(int size) {
+        this.board = new int[size][size];
+
+        //Set up pawns
+        for (int i = 0; i < size; i++) {
+            this.board[1][i] = -1;
+            this.board[6][i] = 1;
+        }
+
+        //Set up rooks
+        board[0][0] = board[0][7] = -2;
+        board[7][0] = board[7][7] = 2;
+
+        //Set up knights
+        board[0][1] = board[0][6] = -3;
+        board[7][1] = board[7][6] = 3;
+
+        //Set up bishops
+        board[0][2] = board[0][5] = -4;
+        board[7][2] = board[7][5] = 4;
+
+        //Set up queens
+        board[0][3] = -5;
+        board[7][3] = 5;
+
+        //Set up kings
+        board[0][4] = -6;
+        board[7][4] = 6;
+
+        state.load(board);
+        startFromHere();
+    }
+
+    public int[][] getBoard() {
+        return board;
+    }
+
+    public void setBoard(int[][] board) {
+        this.board = board;
+        state.load(board);
+        piecesOnBoard = Long.bitCount(state.occupied());
+        startFromHere();
+    }
+
+    public static Game fromFen(String fen) {
+        return Fen.load(fen);
+    }
+
+    public String toFen() {
+        return Fen.write(this);
+    }
+
+    public static Game fromPosition(Position position) {
+        Game game = new Game(8);
+        game.setPosition(position);
+        return game;
+    }
+
+    // Everything about the position is replaced: pieces, side to move, castling rights, en passant and clocks
+    public void setPosition(Position position) {
+        setBoard(position.toBoard());
+        position.applyTo(state);
+        startFromHere();
+    }
+
+    public Position toPosition() {
+        return Position.of(state);
+    }
+
+    public Position getSnapshot() {
+        return snapshot;
+    }
+
+    // Makes the current position the snapshot, for callers that play real moves through makeMove
+    public void publish() {
+        snapshot = Position.of(state);
+    }
+
+    public int getHalfmoveClock() {
+        return state.getHalfmoveClock();
+    }
+
+    public int getFullmoveNumber() {
+        return state.getFullmoveNumber();
+    }
+
+    // All writes to the board have to go through here so the bitboards stay in sync
+    public void setPiece(int x, int y, int piece) {
+        board[x][y] = piece;
+        state.set(Bitboards.square(x, y), piece);
+    }
+
+    // {x, y} of the player's king, or null if it is not on the board. Tracked by the
+    // bitboards on every change, so this never scans the board
+    public int[] getKingPosition(int player) {
+        int square = state.kingSquare(player);
+        return square < 0 ? null : new int[]{Bitboards.row(square), Bitboards.col(square)};
+    }
+
+    public BoardState getState() {
+        return state;
+    }
+
+    // Independent copy of the position (not of the move history), so another thread can work on it
+    public Game copy() {
+        return fromPosition(toPosition());
+    }
+
+    // Zobrist key of the current position (pieces, side to move, castling rights and en passant)
+    public long hash() {
+        return state.hash();
+    }
+
+    // Decides whether the game is over for the side to move. Cheap enough to call after every move:
+    // the move generator stops at the first legal move and the repetition check only walks back
+    // as far as the halfmove clock
+    public GameStatus getStatus() {
+        boolean hasMove = hasLegalMoves() ? !legalMoves.isEmpty() : generator.hasLegalMove(state);
+        if (!hasMove) {
+            return isInCheck() ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        }
+        if (state.getHalfmoveClock() >= 100) {
+            return GameStatus.FIFTY_MOVE_RULE;
+        }
+        if (countRepetitions() >= 3) {
+            return GameStatus.THREEFOLD_REPETITION;
+        }
+        return GameStatus.ONGOING;
+    }
+
+    // How many times the current position has been on the board, this time included
+    public int countRepetitions() {
+        long key = state.hash();
+        int oldest = Math.max(0, positionCount - 1 - state.getHalfmoveClock());
+        int count = 0;
+        for (int i = positionCount - 1; i >= oldest; i--) {
+            if (positionHistory[i] == key) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Keys of every position since the game (or the loaded position) started, oldest first and
+    // the current one last, so a search can see repetitions that began before its root
+    public long[] getPositionHistory() {
+        return Arrays.copyOf(positionHistory, positionCount);
+    }
+
+    private void recordPosition() {
+        if (positionCount == positionHistory.length) {
+            positionHistory = Arrays.copyOf(positionHistory, positionCount * 2);
+        }
+        positionHistory[positionCount++] = state.hash();
+    }
+
+    private void clearPositionHistory() {
+        positionCount = 0;
+        recordPosition();
+    }
+
+    // A new position was set up: repetitions, the snapshot and the record all start over from it
+    private void startFromHere() {
+        clearPositionHistory();
+        publish();
+        record.reset(snapshot);
+        lastMoveRecorded = true;
+    }
+
+    // Legal moves of the side to move, generated the first time they are asked for in a position.
+    // The list belongs to the game and changes with the position, copy it to keep it
+    public MoveList getLegalMoves() {
+        if (!hasLegalMoves()) {
+            generator.generate(state, legalMoves);
+            Arrays.fill(legalTargetsFrom, 0L);
+            for (int i = 0; i < legalMoves.size(); i++) {
+                int move = legalMoves.get(i);
+                legalTargetsFrom[Moves.from(move)] |= 1L << Moves.to(move);
+            }
+
+            int king = state.kingSquare(getCurrentPlayer());
+            legalMovesInCheck = king >= 0 && state.isSquareAttacked(king, -getCurrentPlayer());
+            legalMovesKey = state.hash();
+            legalMovesValid = true;
+        }
+        return legalMoves;
+    }
+
+    // Whether the cached moves belong to the current position
+    private boolean hasLegalMoves() {
+        return legalMovesValid && legalMovesKey == state.hash();
+    }
+
+    // Whether the side to move is in check, from the cached moves when they are there
+    public boolean isInCheck() {
+        if (hasLegalMoves()) return legalMovesInCheck;
+        int king = state.kingSquare(getCurrentPlayer());
+        return king >= 0 && state.isSquareAttacked(king, -getCurrentPlayer());
+    }
+
+    public List<int[]> calculatePossibleMoves(int x, int y) {
+        List<int[]> moves = new ArrayList<>();
+        if (board[x][y] == 0) return moves;
+
+        long targets = legalTargets(x, y);
+        while (targets != 0) {
+            int square = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves.add(new int[]{Bitboards.row(square), Bitboards.col(square)});
+        }
+        return moves;
+    }
+
+    // Same as calculatePossibleMoves but as a set of squares, nothing gets allocated
+    public long legalTargets(int x, int y) {
+        int square = Bitboards.square(x, y);
+        if (Integer.signum(state.pieceAt(square)) == getCurrentPlayer()) {
+            getLegalMoves();
+            return legalTargetsFrom[square];
+        }
+        return generator.legalTargets(state, square);
+    }
+
+    // Whether the side to move may play the move (packed as in engine.Moves), without generating all moves
+    public boolean isLegal(int move) {
+        if (hasLegalMoves()) {
+            if ((legalTargetsFrom[Moves.from(move)] & (1L << Moves.to(move))) == 0) return false;
+            return Moves.promotion(move) == 0 || legalMoves.contains(move);
+        }
+        return generator.isLegal(state, move);
+    }
+
+    // Coordinates off the board would spill into the other fields of the packed move,
+    // a move from the network can be anything so they are turned away first
+    public boolean isLegal(int fromX, int fromY, int toX, int toY) {
+        if (!isOnBoard(fromX, fromY) || !isOnBoard(toX, toY)) return false;
+        return isLegal(Moves.of(Bitboards.square(fromX, fromY), Bitboards.square(toX, toY)));
+    }
+
+    private static boolean isOnBoard(int x, int y) {
+        return x >= 0 && x < 8 && y >= 0 && y < 8;
+    }
+
+    // All legal moves of one side in a single pass, packed as in engine.Moves
+    public void generateLegalMoves(int player, MoveList moves) {
+        generator.generate(state, player, moves);
+    }
+
+    public boolean isKingThreatened(int[][] board, int kingX, int kingY, int opponentSign) {
+        if (board == this.board) {
+            return isSquareAttacked(kingX, kingY, opponentSign);
+        }
+
+        BoardState position = new BoardState();
+        position.load(board);
+        return position.isSquareAttacked(Bitboards.square(kingX, kingY), opponentSign);
+    }
+
+    // Whether any piece of the side attacks the square, stops at the first one found
+    public boolean isSquareAttacked(int x, int y, int player) {
+        return state.isSquareAttacked(Bitboards.square(x, y), player);
+    }
+
+    // Squares attacked or defended by at least one piece of the side, kept between calls until the board changes
+    public long attackedSquares(int player) {
+        return state.attackedSquares(player);
+    }
+
+    // How many pieces of the side attack (or defend) the square
+    public int attackerCount(int x, int y, int player) {
+        return state.attackerCount(Bitboards.square(x, y), player);
+    }
+
+    public void updateLastMove(int fromX, int fromY, int toX, int toY) {
+        lastMoveFromX = fromX;
+        lastMoveFromY = fromY;
+        lastMoveToX = toX;
+        lastMoveToY = toY;
+        lastMovePiece = board[toX][toY];
+        lastMoveRecorded = false;
+
+        // The UI moves pieces with setPiece, so the clocks are moved on here
+        int pieces = Long.bitCount(state.occupied());
+        state.setHalfmoveClock(Math.abs(lastMovePiece) == 1 || pieces < piecesOnBoard ? 0 : state.getHalfmoveClock() + 1);
+        if (lastMovePiece < 0) {
+            state.setFullmoveNumber(state.getFullmoveNumber() + 1);
+        }
+        piecesOnBoard = pieces;
+
+        // A king or rook leaving its square (or a rook taken on it) loses the castling rights
+        state.updateCastlingRights(Bitboards.square(fromX, fromY), Bitboards.square(toX, toY));
+
+        // Set last, the en passant key looks at the pawns where they are now
+        if (Math.abs(lastMovePiece) == 1 && Math.abs(fromX - toX) == 2) {
+            state.setEnPassantSquare(Bitboards.square((fromX + toX) / 2, toY));
+        } else {
+            state.setEnPassantSquare(-1);
+        }
+    }
+
+    // Only the last move fields, for restoring a saved game where the move itself is already on the board
+    public void restoreLastMove(int fromX, int fromY, int toX, int toY) {
+        lastMoveFromX = fromX;
+        lastMoveFromY = fromY;
+        lastMoveToX = toX;
+        lastMoveToY = toY;
+        lastMovePiece = toX < 0 ? 0 : board[toX][toY];
+    }
+
+    // Plays a move for real: unlike makeMove it goes into the record, so it can be undone and
+    // redone later, and becomes the published snapshot
+    public void playMove(int move) {
+        int stateBefore = state.stateWord();
+        int captured = state.playMove(move);
+        syncBoard(move);
+        recordPosition();
+        moveSettled();
+        record.add(Moves.base(move), captured, stateBefore, snapshot);
+    }
+
+    public boolean canUndo() {
+        return record.current() > 0;
+    }
+
+    public boolean canRedo() {
+        return record.current() < record.size();
+    }
+
+    // Takes the last recorded move back, the moves after it stay available for redo()
+    public boolean undo() {
+        if (!canUndo()) return false;
+
+        int ply = record.current() - 1;
+        int move = record.move(ply);
+        state.takeBack(move, record.captured(ply), record.stateBefore(ply));
+        syncBoard(move);
+        record.setCurrent(ply);
+
+        if (positionCount > 1) {
+            positionCount--;
+        } else {
+            clearPositionHistory();
+        }
+        moveSettled();
+        return true;
+    }
+
+    public boolean redo() {
+        if (!canRedo()) return false;
+
+        int move = record.move(record.current());
+        state.playMove(move);
+        syncBoard(move);
+        record.setCurrent(record.current() + 1);
+        recordPosition();
+        moveSettled();
+        return true;
+    }
+
+    // Goes to any ply of the record, either one move at a time or from the nearest checkpoint,
+    // whichever replays fewer moves
+    public void seek(int ply) {
+        ply = Math.max(0, Math.min(ply, record.size()));
+        int checkpointPly = record.checkpointPly(ply);
+
+        if (Math.abs(ply - record.current()) > ply - checkpointPly) {
+            Position checkpoint = record.checkpoint(ply);
+            int[][] checkpointBoard = checkpoint.toBoard();
+            for (int row = 0; row < 8; row++) {
+                System.arraycopy(checkpointBoard[row], 0, board[row], 0, 8);
+            }
+            checkpoint.applyTo(state);
+            record.setCurrent(checkpointPly);
+            clearPositionHistory();
+            moveSettled();
+        }
+
+        while (record.current() < ply) {
+            redo();
+        }
+        while (record.current() > ply) {
+            undo();
+        }
+    }
+
+    // Ply of the position on the board in the record, and how many plies the record holds
+    public int getPly() {
+        return record.current();
+    }
+
+    public int getRecordedPlies() {
+        return record.size();
+    }
+
+    public int getRecordedMove(int ply) {
+        return record.move(ply);
+    }
+
+    // Position before the first recorded move
+    public Position getRecordStart() {
+        return record.checkpoint(0);
+    }
+
+    // Last move fields, clock bookkeeping and snapshot after the record moved the board
+    private void moveSettled() {
+        int ply = record.current();
+        if (ply > 0) {
+            int move = record.move(ply - 1);
+            lastMoveFromX = Bitboards.row(Moves.from(move));
+            lastMoveFromY = Bitboards.col(Moves.from(move));
+            lastMoveToX = Bitboards.row(Moves.to(move));
+            lastMoveToY = Bitboards.col(Moves.to(move));
+            lastMovePiece = state.pieceAt(Moves.to(move));
+        } else {
+            lastMoveFromX = lastMoveFromY = lastMoveToX = lastMoveToY = -1;
+            lastMovePiece = 0;
+        }
+        piecesOnBoard = Long.bitCount(state.occupied());
+        lastMoveRecorded = true;
+        publish();
+    }
+
+    // A UI move just finished (pieces moved with setPiece, then updateLastMove). before is the
+    // snapshot from the previous move, which still has the captured piece and the old state word
+    private void recordUiMove(Position before) {
+        if (lastMoveRecorded || lastMoveFromX < 0) return;
+        lastMoveRecorded = true;
+
+        int from = Bitboards.square(lastMoveFromX, lastMoveFromY);
+        int to = Bitboards.square(lastMoveToX, lastMoveToY);
+        int captured = before.pieceAt(to);
+        int promotion = 0;
+        if (Math.abs(before.pieceAt(from)) == BoardState.PAWN) {
+            if (captured == 0 && ((from ^ to) & 7) != 0) {
+                captured = before.pieceAt(Bitboards.square(lastMoveFromX, lastMoveToY));
+            }
+            if (to < 8 || to >= 56) {
+                promotion = Math.abs(state.pieceAt(to));
+            }
+        }
+        record.add(Moves.of(from, to, promotion), captured, before.state(), snapshot);
+    }
+
+    // Plays a move on the bitboards and on the board array without any copies, unmakeMove() takes it back
+    public void makeMove(int move) {
+        if (historySize == lastMoveHistory.length) {
+            lastMoveHistory = Arrays.copyOf(lastMoveHistory, historySize * 2);
+            lastPieceHistory = Arrays.copyOf(lastPieceHistory, historySize * 2);
+        }
+        lastMoveHistory[historySize] = packLastMove();
+        lastPieceHistory[historySize] = lastMovePiece;
+        historySize++;
+
+        state.makeMove(move);
+        syncBoard(move);
+
+        int to = Moves.to(move);
+        lastMoveFromX = Bitboards.row(Moves.from(move));
+        lastMoveFromY = Bitboards.col(Moves.from(move));
+        lastMoveToX = Bitboards.row(to);
+        lastMoveToY = Bitboards.col(to);
+        lastMovePiece = state.pieceAt(to);
+        recordPosition();
+    }
+
+    public void makeMove(int fromX, int fromY, int toX, int toY) {
+        makeMove(Moves.of(Bitboards.square(fromX, fromY), Bitboards.square(toX, toY)));
+    }
+
+    public void unmakeMove() {
+        int move = state.lastMove();
+        state.unmakeMove();
+        syncBoard(move);
+        positionCount--;
+
+        historySize--;
+        int last = lastMoveHistory[historySize];
+        lastMoveFromX = (last >>> 12) - 1;
+        lastMoveFromY = ((last >>> 8) & 0xF) - 1;
+        lastMoveToX = ((last >>> 4) & 0xF) - 1;
+        lastMoveToY = (last & 0xF) - 1;
+        lastMovePiece = lastPieceHistory[historySize];
+    }
+
+    private int packLastMove() {
+        return (lastMoveFromX + 1) << 12 | (lastMoveFromY + 1) << 8 | (lastMoveToX + 1) << 4 | (lastMoveToY + 1);
+    }
+
+    // Copy the squares a move can touch back from the bitboards: from, to, the en passant victim
+    // (same row as from, same column as to) and the rook squares when castling
+    private void syncBoard(int move) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        copySquare(from);
+        copySquare(to);
+        copySquare(Bitboards.square(Bitboards.row(from), Bitboards.col(to)));
+
+        if (Math.abs(state.pieceAt(from)) == BoardState.KING || Math.abs(state.pieceAt(to)) == BoardState.KING) {
+            int rank = from & ~7;
+            copySquare(rank);
+            copySquare(rank + 3);
+            copySquare(rank + 5);
+            copySquare(rank + 7);
+        }
+    }
+
+    private void copySquare(int square) {
+        board[Bitboards.row(square)][Bitboards.col(square)] = state.pieceAt(square);
+    }
+
+    public boolean isEnPassantCapture(int fromX, int fromY, int toX, int toY) {
+        int piece = board[fromX][fromY];
+        if (Math.abs(piece) != 1) return false;
+        if (Math.abs(fromY - toY) != 1) return false;
+
+        return toX == getEnPassantTargetX() && toY == getEnPassantTargetY();
+    }
+
+    public void performEnPassantCapture(int toX, int toY) {
+        setPiece(getEnPassantTargetX(), getEnPassantTargetY(), 0);
+    }
+
+    public int getLastMoveToX() {
+        return lastMoveToX;
+    }
+
+    public int getLastMoveToY() {
+        return lastMoveToY;
+    }
+
+    public int getLastMovePiece() {
+        return lastMovePiece;
+    }
+
+    public int getCurrentPlayer() {
+        return state.getSideToMove();
+    }
+
+    // Only used when a position is set up, so the history starts over from here
+    public void setCurrentPlayer(int player) {
+        state.setSideToMove(player);
+        startFromHere();
+    }
+
+    public int getLastMoveFromX() {
+        return lastMoveFromX;
+    }
+
+    public int getLastMoveFromY() {
+        return lastMoveFromY;
+    }
+
+    // The UI calls this once a move is complete, which is when the new position counts for repetitions
+    public void switchPlayer() {
+        state.setSideToMove(-state.getSideToMove());
+        recordPosition();
+        Position before = snapshot;
+        publish();
+        recordUiMove(before);
+    }
+
+    public int getEnPassantTargetX() {
+        int square = state.getEnPassantSquare();
+        return square < 0 ? -1 : Bitboards.row(square);
+    }
+
+    public int getEnPassantTargetY() {
+        int square = state.getEnPassantSquare();
+        return square < 0 ? -1 : Bitboards.col(square);
+    }
+
+    public void performKingsideCastle(int kingRow) {
+        setPiece(kingRow, 5, board[kingRow][7]);
+        setPiece(kingRow, 7, 0);
+        markCastled(kingRow);
+    }
+
+    public void performQueensideCastle(int kingRow) {
+        setPiece(kingRow, 3, board[kingRow][0]);
+        setPiece(kingRow, 0, 0);
+        markCastled(kingRow);
+    }
+
+    private void markCastled(int kingRow) {
+        if (kingRow == 7) {
+            state.setCastlingRights(state.getCastlingRights() & ~(BoardState.WHITE_KINGSIDE | BoardState.WHITE_QUEENSIDE));
+        } else {
+            state.setCastlingRights(state.getCastlingRights() & ~(BoardState.BLACK_KINGSIDE | BoardState.BLACK_QUEENSIDE));
+        }
+    }
+
+    public boolean isCastlingMove(int fromX, int fromY, int toX, int toY) {
+        int piece = Math.abs(board[fromX][fromY]);
+        if (piece != 6) return false;
+
+        return fromX == toX && Math.abs(fromY - toY) == 2;
+    }
+}
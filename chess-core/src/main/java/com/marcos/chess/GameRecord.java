@@ -0,0 +1,91 @@
+package com.marcos.chess;
+
+import com.marcos.chess.engine.Position;
+
+import java.util.Arrays;
+
+/*
+Moves of a game as they were played, for takebacks and going through a game afterwards.
+
+Per ply:
+    moves     the move in 16 bits (from, to and promotion, see engine.Moves)
+    captured  the piece it took, 0 for none
+    states    BoardState.stateWord() before the move (castling, en passant, clocks)
+That is all BoardState.takeBack needs, so undo and redo are one move each. Every CHECKPOINT_INTERVAL
+plies the whole position is kept too, so jumping to any ply replays at most that many moves.
+
+current is the ply on the board, the moves after it are what redo plays again. Playing a new move
+there drops them.
+ */
+final class GameRecord {
+
+    static final int CHECKPOINT_INTERVAL = 16;
+
+    private short[] moves = new short[256];
+    private byte[] captured = new byte[256];
+    private int[] states = new int[256];
+    private Position[] checkpoints = new Position[256 / CHECKPOINT_INTERVAL + 1];
+    private int size = 0;
+    private int current = 0;
+
+    // Forgets everything, start is the position before the first move
+    void reset(Position start) {
+        Arrays.fill(checkpoints, null);
+        checkpoints[0] = start;
+        size = 0;
+        current = 0;
+    }
+
+    // A new move after the current ply, after is the position it leads to
+    void add(int move, int capturedPiece, int stateBefore, Position after) {
+        if (current == moves.length) {
+            int length = moves.length * 2;
+            moves = Arrays.copyOf(moves, length);
+            captured = Arrays.copyOf(captured, length);
+            states = Arrays.copyOf(states, length);
+            checkpoints = Arrays.copyOf(checkpoints, length / CHECKPOINT_INTERVAL + 1);
+        }
+
+        moves[current] = (short) move;
+        captured[current] = (byte) capturedPiece;
+        states[current] = stateBefore;
+        current++;
+        size = current;
+        if (current % CHECKPOINT_INTERVAL == 0) {
+            checkpoints[current / CHECKPOINT_INTERVAL] = after;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int current() {
+        return current;
+    }
+
+    void setCurrent(int ply) {
+        current = ply;
+    }
+
+    int move(int ply) {
+        return moves[ply] & 0xFFFF;
+    }
+
+    int captured(int ply) {
+        return captured[ply];
+    }
+
+    int stateBefore(int ply) {
+        return states[ply];
+    }
+
+    // Nearest full position at or before the ply
+    int checkpointPly(int ply) {
+        return ply / CHECKPOINT_INTERVAL * CHECKPOINT_INTERVAL;
+    }
+
+    Position checkpoint(int ply) {
+        return checkpoints[ply / CHECKPOINT_INTERVAL];
+    }
+}
@@ -1,5 +1,9 @@
 package com.marcos.chess;
 
+import com.marcos.chess.engine.Bitboards;
+import com.marcos.chess.engine.BoardState;
+import com.marcos.chess.engine.Position;
+
 import java.io.*;
 import java.nio.file.*;
 import java.nio.file.LinkOption;
@@ -17,22 +21,30 @@ public class GameSaver {
             Path savePath = Paths.get(SAVE_DIR, filename);
 
             try (ObjectOutputStream objects = new ObjectOutputStream(new FileOutputStream(savePath.toFile()))) {
-                int[][] boardCopy = new int[game.getBoard().length][];
-                for (int i = 0; i < game.getBoard().length; i++) {
-                    boardCopy[i] = game.getBoard()[i].clone();
+                // The snapshot cannot change under us, whatever thread is playing on the game
+                Position position = game.getSnapshot();
+
+                // The whole game as well, so it can be gone through again after loading
+                short[] moves = new short[game.getRecordedPlies()];
+                for (int ply = 0; ply < moves.length; ply++) {
+                    moves[ply] = (short) game.getRecordedMove(ply);
                 }
 
                 GameState state = new GameState(
-                        boardCopy,
+                        position.toBoard(),
                         mode,
-                        game.getCurrentPlayer(),
+                        position.sideToMove(),
                         game.getLastMoveFromX(),
                         game.getLastMoveFromY(),
                         game.getLastMoveToX(),
                         game.getLastMoveToY(),
                         game.getLastMovePiece(),
-                        game.getEnPassantTargetX(),
-                        game.getEnPassantTargetY()
+                        position.enPassantSquare() < 0 ? -1 : Bitboards.row(position.enPassantSquare()),
+                        position.enPassantSquare() < 0 ? -1 : Bitboards.col(position.enPassantSquare()),
+                        position.state(),
+                        Fen.write(game.getRecordStart()),
+                        moves,
+                        game.getPly()
                 );
                 objects.writeObject(state);
             }
@@ -48,10 +60,22 @@ public class GameSaver {
 
             try (ObjectInputStream objects = new ObjectInputStream(new FileInputStream(savePath.toFile()))) {
                 GameState state = (GameState) objects.readObject();
-                Game game = MainGame.getGameInstance(8);
-                game.setBoard(state.board.clone());
-                game.setCurrentPlayer(state.currentPlayer);
-                game.updateLastMove(state.lastMoveFromX, state.lastMoveFromY, state.lastMoveToX, state.lastMoveToY);
+
+                // Saves from before the state word was stored only have the side to move and en passant
+                int positionState = state.positionState;
+                if (positionState == 0) {
+                    int enPassant = state.enPassantTargetX < 0 ? -1 : Bitboards.square(state.enPassantTargetX, state.enPassantTargetY);
+                    positionState = BoardState.packState(state.currentPlayer, BoardState.ALL_CASTLING, enPassant, 0, 1);
+                }
+
+                Position position = Position.of(state.board, positionState);
+                Game recorded = replayRecord(state, position);
+                if (recorded != null) {
+                    return recorded;
+                }
+
+                Game game = Game.fromPosition(position);
+                game.restoreLastMove(state.lastMoveFromX, state.lastMoveFromY, state.lastMoveToX, state.lastMoveToY);
                 return game;
             }
         } catch (IOException | ClassNotFoundException e) {
@@ -59,6 +83,19 @@ public class GameSaver {
         }
     }
 
+    // Plays the saved moves again from the start so undo/redo work on a loaded game. Only used if it
+    // ends up exactly on the saved position, older saves have no record at all
+    private static Game replayRecord(GameState state, Position position) {
+        if (state.recordStart == null || state.recordMoves == null) return null;
+
+        Game game = Game.fromFen(state.recordStart);
+        for (short move : state.recordMoves) {
+            game.playMove(move & 0xFFFF);
+        }
+        game.seek(state.recordPly);
+        return position.equals(game.getSnapshot()) ? game : null;
+    }
+
     public static List<SaveGame> getSavedGames() {
         List<SaveGame> savedGames = new ArrayList<>();
         try {
@@ -103,8 +140,15 @@ class GameState implements Serializable {
     final int lastMovePiece;
     final int enPassantTargetX;
     final int enPassantTargetY;
+    // BoardState.stateWord(): castling rights, en passant and both clocks. 0 in older saves, a real
+    // one always has a fullmove number
+    final int positionState;
+    // The record: start position as FEN, every move (engine.Moves, 16 bits) and the ply on the board
+    final String recordStart;
+    final short[] recordMoves;
+    final int recordPly;
 
-    public GameState(int[][] board, String mode, int currentPlayer, int lastMoveFromX, int lastMoveFromY, int lastMoveToX, int lastMoveToY, int lastMovePiece, int enPassantTargetX, int enPassantTargetY) {
+    public GameState(int[][] board, String mode, int currentPlayer, int lastMoveFromX, int lastMoveFromY, int lastMoveToX, int lastMoveToY, int lastMovePiece, int enPassantTargetX, int enPassantTargetY, int positionState, String recordStart, short[] recordMoves, int recordPly) {
         this.board = new int[board.length][];
         for (int i = 0; i < board.length; i++) {
             this.board[i] = board[i].clone();
@@ -118,6 +162,10 @@ class GameState implements Serializable {
         this.lastMovePiece = lastMovePiece;
         this.enPassantTargetX = enPassantTargetX;
         this.enPassantTargetY = enPassantTargetY;
+        this.positionState = positionState;
+        this.recordStart = recordStart;
+        this.recordMoves = recordMoves;
+        this.recordPly = recordPly;
     }
 }
 
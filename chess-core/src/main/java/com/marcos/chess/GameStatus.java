@@ -0,0 +1,25 @@
+package com.marcos.chess;
+
+// Result of Game.getStatus(), worked out for the side to move after every move
+public enum GameStatus {
+    ONGOING,
+    CHECKMATE,
+    STALEMATE,
+    THREEFOLD_REPETITION,
+    FIFTY_MOVE_RULE;
+
+    public boolean isOver() {
+        return this != ONGOING;
+    }
+
+    // Text for the end of game message, sideToMove is the player who would have to move next
+    public String describe(int sideToMove) {
+        return switch (this) {
+            case CHECKMATE -> "Checkmate! " + (sideToMove > 0 ? "Black" : "White") + " wins";
+            case STALEMATE -> "Stalemate, the game is a draw";
+            case THREEFOLD_REPETITION -> "Draw by threefold repetition";
+            case FIFTY_MOVE_RULE -> "Draw by the 50 move rule";
+            case ONGOING -> "";
+        };
+    }
+}
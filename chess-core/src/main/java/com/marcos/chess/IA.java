@@ -1,13 +1,25 @@
 package com.marcos.chess;
 
+import com.marcos.chess.engine.Bitboards;
+import com.marcos.chess.engine.BoardState;
+import com.marcos.chess.engine.MoveList;
+import com.marcos.chess.engine.Moves;
+import com.marcos.chess.engine.ParallelSearch;
+import com.marcos.chess.engine.Position;
+import com.marcos.chess.engine.Search;
+import com.marcos.chess.engine.StaticExchange;
+import com.marcos.chess.engine.TranspositionTable;
+
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Random;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 public class IA {
     private final Random random = new Random();
@@ -75,102 +87,207 @@ public class IA {
         ));
     }
 
+    // Milliseconds per move. The boards use makeMoveAsync so the window keeps drawing meanwhile,
+    // makeMove blocks the caller for that long
+    private static final long THINKING_TIME = 1000;
+    // Transposition table size when none is given
+    public static final int HASH_MEGABYTES = 64;
+
     private int moveCount = 0;
+
+    // Reused on every call so thinking about a move does not create garbage,
+    // index 0 holds our moves and index 1 the replies to them
+    private final MoveList[] moveLists = MoveList.perPly(2);
+    private final int[] scores = new int[MoveList.CAPACITY];
+    private final ParallelSearch search;
+    private final StaticExchange exchange = new StaticExchange();
     private String currentOpening = null;
+    // Thread makeMoveAsync searches on, started the first time it is needed
+    private ExecutorService worker;
+
+    public IA() {
+        this(HASH_MEGABYTES, 1);
+    }
+
+    // The table and the search threads are set up here once and kept between moves,
+    // so size them for the machine. With more than one thread the search runs Lazy SMP
+    public IA(int hashMegabytes, int threads) {
+        search = new ParallelSearch(threads, new TranspositionTable(hashMegabytes));
+        search.setTimeLimit(THINKING_TIME);
+    }
 
     public Move makeMove(Game game, int player) {
         moveCount++;
-        int[][] board = game.getBoard();
+        Move bookMove = getBookMove(game, player);
+        if (bookMove != null) {
+            return bookMove;
+        }
+
+        // If no move is available already, then search
+        MoveList possibleMoves = orderMoves(game, player);
+        if (possibleMoves.isEmpty()) {
+            return null;
+        }
+
+        // The search plays from the position on the board, it cannot think for the side that is waiting
+        if (player != game.getCurrentPlayer()) {
+            return toMove(possibleMoves.get(0));
+        }
+        int best = search.search(game.getState(), possibleMoves, game.getPositionHistory());
+        return best != Moves.NONE ? toMove(best) : null;
+    }
+
+    /*
+    Same move as makeMove, but the search runs on a thread of its own so the UI does not freeze while
+    it thinks. The book and the ordering of the moves are quick and still run here, then the position
+    is copied and the game can change freely. onMove gets the move (null when there is none) through
+    uiThread, e.g. Platform::runLater for JavaFX or enqueue for jME, so it can touch the board.
+    One move at a time: do not ask for the next one before onMove was called.
+     */
+    public void makeMoveAsync(Game game, int player, Executor uiThread, Consumer<Move> onMove) {
+        moveCount++;
+        Move bookMove = getBookMove(game, player);
+        if (bookMove != null) {
+            uiThread.execute(() -> onMove.accept(bookMove));
+            return;
+        }
 
+        MoveList possibleMoves = orderMoves(game, player);
+        if (possibleMoves.isEmpty() || player != game.getCurrentPlayer()) {
+            Move move = possibleMoves.isEmpty() ? null : toMove(possibleMoves.get(0));
+            uiThread.execute(() -> onMove.accept(move));
+            return;
+        }
+
+        Position root = game.toPosition();
+        MoveList rootMoves = new MoveList();
+        rootMoves.copyFrom(possibleMoves);
+        long[] history = game.getPositionHistory();
+        if (worker == null) {
+            worker = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ia-search");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        worker.execute(() -> {
+            int best = search.search(root, rootMoves, history);
+            Move move = best != Moves.NONE ? toMove(best) : null;
+            uiThread.execute(() -> onMove.accept(move));
+        });
+    }
+
+    // Opening moves for the first 10 moves of the game, null once the book has nothing to say
+    private Move getBookMove(Game game, int player) {
         // Early game phase is thghe first 10 moves
-        if (moveCount <= 10) {
-            Move bookMove = null;
-
-            if (player == 1) {
-                if (moveCount == 1) {
-                    // Random opening
-                    List<OpeningMove> opening = WHITE_OPENINGS.get(random.nextInt(WHITE_OPENINGS.size()));
-                    OpeningMove firstMove = opening.get(0);
-                    currentOpening = firstMove.name;
-                    return new Move(firstMove.fromX, firstMove.fromY, firstMove.toX, firstMove.toY);
-                }
-                bookMove = getNextOpeningMove(game, currentOpening);
-            } else {
-                bookMove = getDefensiveMove(game);
-            }
+        if (moveCount > 10) {
+            return null;
+        }
 
-            if (bookMove != null) {
-                return bookMove;
+        if (player == 1) {
+            if (moveCount == 1) {
+                // Random opening
+                List<OpeningMove> opening = WHITE_OPENINGS.get(random.nextInt(WHITE_OPENINGS.size()));
+                OpeningMove firstMove = opening.get(0);
+                currentOpening = firstMove.name;
+                return new Move(firstMove.fromX, firstMove.fromY, firstMove.toX, firstMove.toY);
             }
+            return getNextOpeningMove(game, currentOpening);
         }
+        return getDefensiveMove(game);
+    }
 
-        // If no move is available already, then use the existing logic
-        List<Move> possibleMoves = getAllPossibleMoves(game, board, player);
+    // Every move of the player, best first by the one move heuristics
+    private MoveList orderMoves(Game game, int player) {
+        MoveList possibleMoves = moveLists[0];
+        getAllPossibleMoves(game, player, possibleMoves);
 
-        if (!possibleMoves.isEmpty()) {
-            List<ScoredMove> scoredMoves = new ArrayList<>();
+        // The old one move heuristics still decide the order the search tries the moves in,
+        // shuffled first so moves they like the same are not always tried in the same order
+        int count = possibleMoves.size();
+        for (int i = count - 1; i > 0; i--) {
+            possibleMoves.swap(i, random.nextInt(i + 1));
+        }
 
-            for (Move move : possibleMoves) {
-                int score = evaluateMove(game, move);
-                if (player == -1) {
-                    score += evaluateDefensiveValue(game, move);
-                }
-                if (score > 0) {
-                    scoredMoves.add(new ScoredMove(move, score));
-                }
+        for (int i = 0; i < count; i++) {
+            int move = possibleMoves.get(i);
+            int score = evaluateMove(game, move);
+            if (player == -1) {
+                score += evaluateDefensiveValue(game, move);
             }
+            scores[i] = score;
+        }
 
-            // If no good moves found then make analise of the position to move again
-            if (scoredMoves.isEmpty()) {
-                for (Move move : possibleMoves) {
-                    int positionScore = analizePosition(game, move);
-                    if (positionScore > 0) {
-                        scoredMoves.add(new ScoredMove(move, positionScore));
-                    }
-                }
+        // If no good moves found then make analise of the position to move again
+        if (bestScore(count) <= 0) {
+            for (int i = 0; i < count; i++) {
+                scores[i] = analizePosition(game, possibleMoves.get(i));
             }
+        }
+        sortByScore(possibleMoves, count);
+        return possibleMoves;
+    }
+
+    // Highest score first, insertion sort keeps the shuffled order of equal scores
+    private void sortByScore(MoveList moves, int count) {
+        for (int i = 1; i < count; i++) {
+            int move = moves.get(i);
+            int score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                moves.set(j + 1, moves.get(j));
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            moves.set(j + 1, move);
+            scores[j + 1] = score;
+        }
+    }
 
-            if (!scoredMoves.isEmpty()) {
-                // sort by descending score to put the best moves first
-                Collections.sort(scoredMoves, Comparator.comparingInt(ScoredMove::score).reversed());
+    // How long makeMove may think once the opening book runs out
+    public void setThinkingTime(long millis) {
+        search.setTimeLimit(millis);
+    }
 
-                // Get all moves with the best score
-                int bestScore = scoredMoves.get(0).score();
-                List<Move> bestMoves = new ArrayList<>();
+    public void setNodeLimit(long nodes) {
+        search.setNodeLimit(nodes);
+    }
 
-                for (ScoredMove sm : scoredMoves) {
-                    if (sm.score() == bestScore) {
-                        bestMoves.add(sm.move());
-                    } else {
-                        break;
-                    }
-                }
+    public void setMaxDepth(int depth) {
+        search.setMaxDepth(depth);
+    }
 
-                // Choose the best move random from the best moves
-                return bestMoves.get(random.nextInt(bestMoves.size()));
-            }
+    // What the last search found (score, depth, principal variation), for printing or debugging
+    public Search getSearch() {
+        return search.getMain();
+    }
+
+    private int bestScore(int count) {
+        int best = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            best = Math.max(best, scores[i]);
         }
-        return null;
+        return best;
     }
 
-    private int analizePosition(Game game, Move move) {
+    private int analizePosition(Game game, int move) {
         int[][] board = game.getBoard();
-        int piece = board[move.fromX][move.fromY];
+        int piece = board[fromX(move)][fromY(move)];
         int score = 0;
 
         // Special analisis for knights and rooks
         if (Math.abs(piece) == 3) {
-            score += evaluateKnightPosition(board, move, piece);
+            score += evaluateKnightPosition(game, move, piece);
         } else if (Math.abs(piece) == 2) {
-            score += evaluateRookPosition(board, move, piece);
+            score += evaluateRookPosition(game, move, piece);
         } else if (Math.abs(piece) == 6) {
             score += evaluateKingPosition(board, move, piece);
         } else {
-            score += POSITION_SCORES[move.toX][move.toY] * 10;
+            score += POSITION_SCORES[toX(move)][toY(move)] * 10;
         }
 
         // Development bonus (increased for knights and rooks)
-        if (isStartingPosition(move.fromX, move.fromY, piece)) {
+        if (isStartingPosition(fromX(move), fromY(move), piece)) {
             // First make knights develop
             if (Math.abs(piece) == 3) {
                 score += 40;
@@ -186,67 +303,69 @@ public class IA {
         return score;
     }
 
-    private int evaluateKnightPosition(int[][] board, Move move, int piece) {
+    private int evaluateKnightPosition(Game game, int move, int piece) {
+        int[][] board = game.getBoard();
         int score = 0;
         boolean isEarlyGame = !isEndgame(board);
 
         // Early game development bonus
-        if (isEarlyGame && isStartingPosition(move.fromX, move.fromY, piece)) {
+        if (isEarlyGame && isStartingPosition(fromX(move), fromY(move), piece)) {
             // Strong bonus to make knights develop too, added to the 40 before
             score += 60;
 
             // Extra bonus for developing towards center
-            if ((move.toX >= 2 && move.toX <= 5) && (move.toY >= 2 && move.toY <= 5)) {
+            if ((toX(move) >= 2 && toX(move) <= 5) && (toY(move) >= 2 && toY(move) <= 5)) {
                 score += 40;
             }
         }
 
         // Bonus for central squares
-        if ((move.toX >= 2 && move.toX <= 5) && (move.toY >= 2 && move.toY <= 5)) {
+        if ((toX(move) >= 2 && toX(move) <= 5) && (toY(move) >= 2 && toY(move) <= 5)) {
             // Gain much higher for center control
             score += 30;
         }
 
         // Check if the knight is under attack in current position
-        boolean isCurrentlyThreatened = isSquareUnderAttack(board, move.fromX, move.fromY, -Integer.signum(piece));
+        boolean isCurrentlyThreatened = isSquareUnderAttack(game, fromX(move), fromY(move), -Integer.signum(piece));
         if (isCurrentlyThreatened) {
             // Make him move to safety
-            if (!isSquareUnderAttack(board, move.toX, move.toY, -Integer.signum(piece))) {
+            if (!isSquareUnderAttack(game, toX(move), toY(move), -Integer.signum(piece))) {
                 score += 50;
             }
         }
 
         // Bonus for bettter positions (protected by friendly pawn)
         int pawnDirection = (piece > 0) ? 1 : -1;
-        if (isInBounds(move.toX + pawnDirection, move.toY - 1)) {
-            if (board[move.toX + pawnDirection][move.toY - 1] == piece / Math.abs(piece)) {
+        if (isInBounds(toX(move) + pawnDirection, toY(move) - 1)) {
+            if (board[toX(move) + pawnDirection][toY(move) - 1] == piece / Math.abs(piece)) {
                 score += 25;
             }
         }
-        if (isInBounds(move.toX + pawnDirection, move.toY + 1)) {
-            if (board[move.toX + pawnDirection][move.toY + 1] == piece / Math.abs(piece)) {
+        if (isInBounds(toX(move) + pawnDirection, toY(move) + 1)) {
+            if (board[toX(move) + pawnDirection][toY(move) + 1] == piece / Math.abs(piece)) {
                 score += 25;
             }
         }
 
         // Count attacking squares
-        int attackingSquares = countAttackers(board, move.toX, move.toY, piece);
+        int attackingSquares = game.attackerCount(toX(move), toY(move), Integer.signum(piece));
         score += attackingSquares * 15;
 
         return score;
     }
 
-    private int evaluateRookPosition(int[][] board, Move move, int piece) {
+    private int evaluateRookPosition(Game game, int move, int piece) {
+        int[][] board = game.getBoard();
         int score = 0;
         boolean isEndgame = isEndgame(board);
 
         // Count empty squares in the rook's lines
-        int emptySquaresInLine = countEmptySquaresInLine(board, move.toY);
+        int emptySquaresInLine = countEmptySquaresInLine(board, toY(move));
 
         // Early game should be safety and development
         if (!isEndgame) {
 
-            if (isStartingPosition(move.fromX, move.fromY, piece)) {
+            if (isStartingPosition(fromX(move), fromY(move), piece)) {
                 // Only allow rook movemnt if there's a clear purpose
                 // IF THIS DOES NOT WORK, THEN I AM DONE FOR TODAY
                 if (emptySquaresInLine < 5) {
@@ -259,8 +378,8 @@ public class IA {
             int[][] diagonalDirections = {{1,1}, {1,-1}, {-1,1}, {-1,-1}};
 
             for (int[] dir : diagonalDirections) {
-                int x = move.toX + dir[0];
-                int y = move.toY + dir[1];
+                int x = toX(move) + dir[0];
+                int y = toY(move) + dir[1];
                 while (isInBounds(x, y)) {
                     int pieceAtSquare = board[x][y];
                     if (pieceAtSquare != 0) {
@@ -281,7 +400,7 @@ public class IA {
             }
 
             // Points for staying protected
-            if (isSquareProtected(board, move.toX, move.toY, Integer.signum(piece))) {
+            if (isSquareProtected(game, toX(move), toY(move), Integer.signum(piece))) {
                 score += 30;
             }
         }
@@ -289,14 +408,14 @@ public class IA {
         return score;
     }
 
-    private int evaluateKingPosition(int[][] board, Move move, int piece) {
+    private int evaluateKingPosition(int[][] board, int move, int piece) {
         int score = 0;
         boolean isEndgame = isEndgame(board);
 
         if (!isEndgame) {
             // Strongly discourage early king moves unless castling
-            if (isStartingPosition(move.fromX, move.fromY, piece)) {
-                if (Math.abs(move.fromY - move.toY) == 2) {
+            if (isStartingPosition(fromX(move), fromY(move), piece)) {
+                if (Math.abs(fromY(move) - toY(move)) == 2) {
                     score += 100;
                 } else {
                     score -= 150;
@@ -304,14 +423,14 @@ public class IA {
             }
 
             // Prefer corners and edges in early game
-            if (isCorner(move.toX, move.toY)) {
+            if (isCorner(toX(move), toY(move))) {
                 score += 30;
-            } else if (isEdge(move.toX, move.toY)) {
+            } else if (isEdge(toX(move), toY(move))) {
                 score += 20;
             }
 
             // Penalize moving to center squares early
-            if (isCenterSquare(move.toX, move.toY)) {
+            if (isCenterSquare(toX(move), toY(move))) {
                 score -= 40;
             }
 
@@ -319,7 +438,7 @@ public class IA {
             score += evaluateKingShelter(board, move, piece);
         } else {
             // In endgame, king should be more active
-            if (isEdge(move.toX, move.toY)) {
+            if (isEdge(toX(move), toY(move))) {
                 score += 10;
             }
         }
@@ -339,7 +458,7 @@ public class IA {
         return (x >= 2 && x <= 5) && (y >= 2 && y <= 5);
     }
 
-    private int evaluateKingShelter(int[][] board, Move move, int piece) {
+    private int evaluateKingShelter(int[][] board, int move, int piece) {
         int score = 0;
         int friendlySign = Integer.signum(piece);
 
@@ -347,8 +466,8 @@ public class IA {
             for (int dy = -1; dy <= 1; dy++) {
                 if (dx == 0 && dy == 0) continue;
 
-                int newX = move.toX + dx;
-                int newY = move.toY + dy;
+                int newX = toX(move) + dx;
+                int newY = toY(move) + dy;
 
                 if (isInBounds(newX, newY)) {
                     int squarePiece = board[newX][newY];
@@ -396,54 +515,40 @@ public class IA {
         return count;
     }
 
-    private int[] findEnemyKing(int[][] board, int piece) {
-        int enemyKing = (piece > 0) ? -6 : 6;
-        for (int i = 0; i < board.length; i++) {
-            for (int j = 0; j < board[i].length; j++) {
-                if (board[i][j] == enemyKing) {
-                    return new int[]{i, j};
-                }
-            }
-        }
-        return null;
-    }
-
-    private int evaluateMove(Game game, Move move) {
+    private int evaluateMove(Game game, int move) {
         int[][] board = game.getBoard();
-        int piece = board[move.fromX][move.fromY];
+        int piece = board[fromX(move)][fromY(move)];
         int score = 0;
         int pieceValue = getPieceValue(Math.abs(piece));
 
         // Check if in check and this is a defensive move
-        if (isKingInCheck(board, game.getCurrentPlayer())) {
+        if (isKingInCheck(game, game.getCurrentPlayer())) {
             score += evaluateCheckDefense(game, move, piece);
         }
 
-        // Create temporary board to make the move
-        int[][] tempBoard = new int[board.length][board.length];
-        for (int i = 0; i < board.length; i++) {
-            System.arraycopy(board[i], 0, tempBoard[i], 0, board[i].length);
+        // Everything about the position before the move has to be read first,
+        // the move is played on the game itself and board changes with it
+        int capturedPiece = board[toX(move)][toY(move)];
+        boolean isCurrentlyThreatened = isSquareUnderAttack(game, fromX(move), fromY(move), -Integer.signum(piece));
+        int[] enemyKingPos = game.getKingPosition(-Integer.signum(piece));
+        boolean isNextToKing = enemyKingPos != null &&
+                Math.abs(toX(move) - enemyKingPos[0]) <= 1 &&
+                Math.abs(toY(move) - enemyKingPos[1]) <= 1;
+        // What the capture wins once every recapture on the square (x-rays too) is played out
+        int exchangeGain = capturedPiece != 0 ? exchange.evaluate(game.getState(), move) : 0;
+
+        game.makeMove(move);
+        int lostNextToKing = isNextToKing ? exchange.captureGain(game.getState(), Moves.to(move), -Integer.signum(piece)) : 0;
+        boolean isTargetAttacked = isSquareUnderAttack(game, toX(move), toY(move), -Integer.signum(piece));
+        boolean controlsOpenFile = countEmptySquaresInLine(board, toY(move)) >= 5;
+        boolean isTargetProtected = Math.abs(piece) == 2 && isStartingPosition(fromX(move), fromY(move), piece) &&
+                isSquareProtected(game, toX(move), toY(move), Integer.signum(piece));
+        game.unmakeMove();
+
+        // Check if moving next to enemy king, only allow if the piece cannot be won there
+        if (isNextToKing && lostNextToKing > 0) {
+            return -1000;
         }
-        tempBoard[move.toX][move.toY] = piece;
-        tempBoard[move.fromX][move.fromY] = 0;
-
-        // Check if moving next to enemy king
-        int[] enemyKingPos = findEnemyKing(board, piece);
-        if (enemyKingPos != null) {
-            boolean isNextToKing = Math.abs(move.toX - enemyKingPos[0]) <= 1 &&
-                    Math.abs(move.toY - enemyKingPos[1]) <= 1;
-
-            if (isNextToKing) {
-                // Only allow if square is well protected
-                int defendersCount = countDefenders(tempBoard, move.toX, move.toY, Integer.signum(piece));
-                if (defendersCount == 0) {
-                    return -1000;
-                }
-            }
-        }
-
-        // Check if piece is currently threatened
-        boolean isCurrentlyThreatened = isSquareUnderAttack(board, move.fromX, move.fromY, -Integer.signum(piece));
 
         // move highervalue pieces to safety
         if (isCurrentlyThreatened && Math.abs(piece) >= 4) {
@@ -451,10 +556,9 @@ public class IA {
             score += pieceValue * 3;
 
             // MOREEEE MONEEYYYYYY
-            if (!isSquareUnderAttack(tempBoard, move.toX, move.toY, -Integer.signum(piece))) {
+            if (!isTargetAttacked) {
                 score += pieceValue * 5;
             } else {
-                int capturedPiece = board[move.toX][move.toY];
                 if (capturedPiece == 0 || getPieceValue(Math.abs(capturedPiece)) <= pieceValue) {
                     return -1;
                 }
@@ -468,10 +572,8 @@ public class IA {
             // 2. It can capture something
             // 3. It moves to control an important file
             // 4. It's part of development in early game
-            boolean isCapture = board[move.toX][move.toY] != 0;
-            boolean controlsOpenFile = countEmptySquaresInLine(tempBoard, move.toY) >= 5;
-            boolean isDevelopment = isStartingPosition(move.fromX, move.fromY, piece) &&
-                    isSquareProtected(tempBoard, move.toX, move.toY, Integer.signum(piece));
+            boolean isCapture = capturedPiece != 0;
+            boolean isDevelopment = isTargetProtected;
 
             if (!isCurrentlyThreatened && !isCapture && !controlsOpenFile && !isDevelopment) {
                 return -1;
@@ -479,32 +581,24 @@ public class IA {
         }
 
         // Evaluate captures
-        int capturedPiece = board[move.toX][move.toY];
         if (capturedPiece != 0) {
-            int capturedValue = getPieceValue(Math.abs(capturedPiece));
-            boolean couldBeRecaptured = isSquareUnderAttack(tempBoard, move.toX, move.toY, -Integer.signum(piece));
-
-            if (couldBeRecaptured) {
-                // Only make capture if favorable
-                if (capturedValue > pieceValue) {
-                    score += (capturedValue - pieceValue) * 100;
-                } else {
-                    return -1;
-                }
-            } else {
-                score += capturedValue * 100;
+            // Only make capture if favorable
+            if (exchangeGain <= 0) {
+                return -1;
             }
+            score += exchangeGain * 100;
         }
 
         // Add positional evaluation if move is safe
-        if (!isSquareUnderAttack(tempBoard, move.toX, move.toY, -Integer.signum(piece)) || score > 0) {
+        if (!isTargetAttacked || score > 0) {
             score += analizePosition(game, move);
         }
 
         return score;
     }
 
-    private int evaluateDefense(Game game, int[][] board, Move move, int piece) {
+    // Bonus for moving next to own pieces that are attacked, more when SEE says they hang
+    int evaluateDefense(Game game, int[][] board, int move, int piece) {
         int score = 0;
         int friendlySign = Integer.signum(piece);
 
@@ -513,15 +607,13 @@ public class IA {
             for (int j = 0; j < board[i].length; j++) {
                 if (board[i][j] != 0 && Integer.signum(board[i][j]) == friendlySign) {
                     // If piece under attack
-                    if (isSquareUnderAttack(board, i, j, -friendlySign)) {
-                        int defendersCount = countDefenders(board, i, j, friendlySign);
-                        int attackersCount = countAttackers(board, i, j, -friendlySign);
-
+                    if (isSquareUnderAttack(game, i, j, -friendlySign)) {
                         // If moving to a position where can defend
-                        if (canReachSquare(game, move.toX, move.toY, i, j)) {
+                        if (canReachSquare(game, toX(move), toY(move), i, j)) {
                             int pieceValue = getPieceValue(Math.abs(board[i][j]));
 
-                            if (defendersCount <= attackersCount) {
+                            // The enemy wins material taking it, not enough defenders
+                            if (exchange.captureGain(game.getState(), Bitboards.square(i, j), -friendlySign) > 0) {
                                 score += (pieceValue / 100) * 30;
                             } else {
                                 score += (pieceValue / 100) * 10;
@@ -534,50 +626,6 @@ public class IA {
         return score;
     }
 
-    private int countDefenders(int[][] board, int x, int y, int friendlySign) {
-        int count = 0;
-        Game tempGame = new Game(8);
-        tempGame.setBoard(board);
-
-        for (int i = 0; i < board.length; i++) {
-            for (int j = 0; j < board[i].length; j++) {
-                if (board[i][j] != 0 && Integer.signum(board[i][j]) == friendlySign &&
-                        (i != x || j != y)) {
-                    // Dont caunt the piece itself
-                    List<int[]> moves = tempGame.calculatePossibleMoves(i, j);
-                    for (int[] move : moves) {
-                        if (move[0] == x && move[1] == y) {
-                            count++;
-                            break;
-                        }
-                    }
-                }
-            }
-        }
-        return count;
-    }
-
-    private int countAttackers(int[][] board, int x, int y, int attackerSign) {
-        int count = 0;
-        Game tempGame = new Game(8);
-        tempGame.setBoard(board);
-
-        for (int i = 0; i < board.length; i++) {
-            for (int j = 0; j < board[i].length; j++) {
-                if (board[i][j] != 0 && Integer.signum(board[i][j]) == attackerSign) {
-                    List<int[]> moves = tempGame.calculatePossibleMoves(i, j);
-                    for (int[] move : moves) {
-                        if (move[0] == x && move[1] == y) {
-                            count++;
-                            break;
-                        }
-                    }
-                }
-            }
-        }
-        return count;
-    }
-
     private boolean canReachSquare(Game game, int fromX, int fromY, int toX, int toY) {
         // Check if a piece at (fromX, fromY) can defend a piece at (toX, toY)
         // This includes both direct protection and potential issues
@@ -588,19 +636,19 @@ public class IA {
         return dx <= 2 && dy <= 2;
     }
 
-    private int evaluateCheckDefense(Game game, Move move, int piece) {
+    private int evaluateCheckDefense(Game game, int move, int piece) {
         int score = 0;
         int[][] board = game.getBoard();
 
         // Find enemy king position
-        int[] enemyKingPos = findEnemyKing(board, piece);
+        int[] enemyKingPos = game.getKingPosition(-Integer.signum(piece));
         if (enemyKingPos == null) return 0;
 
         // Get all king escape squares before our move
         List<int[]> kingEscapeSquares = getKingEscapeSquares(board, enemyKingPos[0], enemyKingPos[1]);
         
         // If this is a defensive move for our own king
-        if (isKingInCheck(board, game.getCurrentPlayer())) {
+        if (isKingInCheck(game, game.getCurrentPlayer())) {
             // Find attacking piece value
             int minAttackerValue = Integer.MAX_VALUE;
             for (int i = 0; i < board.length; i++) {
@@ -627,22 +675,19 @@ public class IA {
         
         // Continue with your existing offensive evaluation
         // Simulate our move
-        int[][] tempBoard = new int[board.length][board.length];
-        for (int i = 0; i < board.length; i++) {
-            tempBoard[i] = board[i].clone();
-        }
-        tempBoard[move.toX][move.toY] = tempBoard[move.fromX][move.fromY];
-        tempBoard[move.fromX][move.fromY] = 0;
+        game.makeMove(move);
 
         // Check if we're controlling escape squares
         for (int[] escapeSquare : kingEscapeSquares) {
-            if (isSquareControlled(tempBoard, escapeSquare[0], escapeSquare[1], Integer.signum(piece))) {
+            if (isSquareControlled(board, escapeSquare[0], escapeSquare[1], Integer.signum(piece))) {
                 score += 50;
             }
         }
 
+        List<int[]> newEscapeSquares = getKingEscapeSquares(board, enemyKingPos[0], enemyKingPos[1]);
+        game.unmakeMove();
+
         // Extra bonus for moves that limit king's mobility
-        List<int[]> newEscapeSquares = getKingEscapeSquares(tempBoard, enemyKingPos[0], enemyKingPos[1]);
         if (newEscapeSquares.size() < kingEscapeSquares.size()) {
             score += 75 * (kingEscapeSquares.size() - newEscapeSquares.size());
         }
@@ -652,27 +697,19 @@ public class IA {
 
 
     //Maybe I will use this later... who knows...
-    private boolean canKingBeSaved(int[][] board, int kingX, int kingY, int defendingPlayer) {
+    private boolean canKingBeSaved(Game game, int defendingPlayer) {
         // Check if any piece can block or capture the attacking piece
-        for (int i = 0; i < board.length; i++) {
-            for (int j = 0; j < board[i].length; j++) {
-                if (Integer.signum(board[i][j]) == defendingPlayer) {
-                    List<Move> moves = getAllPossibleMoves(new Game(8), board, defendingPlayer);
-                    for (Move move : moves) {
-                        // Try the defensive move
-                        int[][] tempBoard = new int[board.length][board.length];
-                        for (int k = 0; k < board.length; k++) {
-                            tempBoard[k] = board[k].clone();
-                        }
-                        tempBoard[move.toX][move.toY] = tempBoard[i][j];
-                        tempBoard[i][j] = 0;
-                        
-                        // If king is no longer in check after this move, return true
-                        if (!isKingInCheck(tempBoard, -defendingPlayer)) {
-                            return true;
-                        }
-                    }
-                }
+        MoveList moves = moveLists[1];
+        getAllPossibleMoves(game, defendingPlayer, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            // Try the defensive move
+            game.makeMove(moves.get(i));
+            boolean saved = !isKingInCheck(game, defendingPlayer);
+            game.unmakeMove();
+
+            // If king is no longer in check after this move, return true
+            if (saved) {
+                return true;
             }
         }
         return false;
@@ -705,93 +742,43 @@ public class IA {
         return escapeSquares;
     }
 
-    private boolean isKingInCheck(int[][] board, int player) {
-        // Find king position
-        int[] kingPos = findOurKing(board, player);
-        if (kingPos == null) return false;
+    private boolean isKingInCheck(Game game, int player) {
+        int king = game.getState().kingSquare(player);
+        if (king < 0) return false;
 
         // Check if king is under attack
-        return isSquareUnderAttack(board, kingPos[0], kingPos[1], -player);
+        return game.getState().isSquareAttacked(king, -player);
     }
 
-    private int[] findOurKing(int[][] board, int player) {
-        int kingValue = player * 6;
-        for (int i = 0; i < board.length; i++) {
-            for (int j = 0; j < board[i].length; j++) {
-                if (board[i][j] == kingValue) {
-                    return new int[]{i, j};
-                }
-            }
-        }
-        return null;
+    private boolean isSquareProtected(Game game, int x, int y, int player) {
+        // Check if any friendly piece covers this square
+        return game.attackerCount(x, y, player) > 0;
     }
 
-    private boolean isSquareProtected(int[][] board, int x, int y, int player) {
-        // Check if any friendly piece can move to this square
-        for (int i = 0; i < board.length; i++) {
-            for (int j = 0; j < board[i].length; j++) {
-                if (board[i][j] != 0 && Integer.signum(board[i][j]) == player && (i != x || j != y)) {
-                    // Don't count the piece itself
-                    Game tempGame = new Game(8);
-                    tempGame.setBoard(board);
-                    List<int[]> moves = tempGame.calculatePossibleMoves(i, j);
-                    for (int[] move : moves) {
-                        if (move[0] == x && move[1] == y) {
-                            return true;
-                        }
-                    }
-                }
-            }
-        }
-        return false;
-    }
-
-    private boolean isSquareUnderAttack(int[][] board, int x, int y, int attackerSign) {
-        int defendingPiece = board[x][y];
-
-        // Get list of all attackers with their values
-        List<Integer> attackers = new ArrayList<>();
-        for (int i = 0; i < board.length; i++) {
-            for (int j = 0; j < board[i].length; j++) {
-                if (board[i][j] != 0 && Integer.signum(board[i][j]) == attackerSign) {
-                    Game tempGame = new Game(8);
-                    tempGame.setBoard(board);
-                    List<int[]> moves = tempGame.calculatePossibleMoves(i, j);
-
-                    // If this piece can attack the square
-                    for (int[] move : moves) {
-                        if (move[0] == x && move[1] == y) {
-                            attackers.add(board[i][j]);
-                            break;
-                        }
-                    }
-                }
-            }
+    private boolean isSquareUnderAttack(Game game, int x, int y, int attackerSign) {
+        if (!game.isSquareAttacked(x, y, attackerSign)) {
+            return false;
         }
 
-        if (attackers.isEmpty()) {
-            return false;
+        // For empty squares, any attack is valid
+        int defendingPiece = game.getBoard()[x][y];
+        if (defendingPiece == 0) {
+            return true;
         }
 
-        // Sort attackers by value (prefer using lower value pieces)
-        attackers.sort((a, b) -> getPieceValue(Math.abs(a)) - getPieceValue(Math.abs(b)));
-
-        // If defending piece exists, only consider low attackers
-        if (defendingPiece != 0) {
-            int defendingValue = getPieceValue(Math.abs(defendingPiece));
-            // Find lowest value attacker that can take the piece
-            for (int attacker : attackers) {
-                int attackerValue = getPieceValue(Math.abs(attacker));
-                // Only consider attack if attacker is of lower or equal value
-                if (attackerValue <= defendingValue) {
-                    return true;
-                }
+        // Only the cheapest attacker matters (prefer using lower value pieces),
+        // the attack counts if it is of lower or equal value than the piece
+        BoardState state = game.getState();
+        int defendingValue = getPieceValue(Math.abs(defendingPiece));
+        long attackers = state.attackersTo(Bitboards.square(x, y), attackerSign, state.occupied());
+        while (attackers != 0) {
+            int attacker = state.pieceAt(Long.numberOfTrailingZeros(attackers));
+            attackers &= attackers - 1;
+            if (getPieceValue(Math.abs(attacker)) <= defendingValue) {
+                return true;
             }
-            return false;
         }
-
-        // For empty squares, any attack is valid
-        return true;
+        return false;
     }
 
     private boolean isStartingPosition(int x, int y, int piece) {
@@ -833,22 +820,46 @@ public class IA {
         };
     }
 
-    public List<Move> getAllPossibleMoves(Game game, int[][] board, int player) {
-        List<Move> allMoves = new ArrayList<>();
-        for (int i = 0; i < board.length; i++) {
-            for (int j = 0; j < board[i].length; j++) {
-                if (board[i][j] != 0 && Integer.signum(board[i][j]) == player) {
-                    List<int[]> pieceMoves = game.calculatePossibleMoves(i, j);
-                    for (int[] pieceMove : pieceMoves) {
-                        allMoves.add(new Move(i, j, pieceMove[0], pieceMove[1]));
-                    }
-                }
+    public void getAllPossibleMoves(Game game, int player, MoveList moves) {
+        // At the root these are usually generated already (highlighting, validation)
+        if (player == game.getCurrentPlayer()) {
+            moves.copyFrom(game.getLegalMoves());
+        } else {
+            game.generateLegalMoves(player, moves);
+        }
+
+        // The AI always promotes to a queen, so drop the other promotions
+        int kept = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (Moves.promotion(move) == 0 || Moves.promotion(move) == BoardState.QUEEN) {
+                moves.set(kept++, move);
             }
         }
-        return allMoves;
+        moves.truncate(kept);
     }
 
-    private record ScoredMove(Move move, int score) {}
+    private static Move toMove(int move) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        return new Move(Bitboards.row(from), Bitboards.col(from), Bitboards.row(to), Bitboards.col(to));
+    }
+
+    private static int fromX(int move) {
+        return Bitboards.row(Moves.from(move));
+    }
+
+    private static int fromY(int move) {
+        return Bitboards.col(Moves.from(move));
+    }
+
+    private static int toX(int move) {
+        return Bitboards.row(Moves.to(move));
+    }
+
+    private static int toY(int move) {
+        return Bitboards.col(Moves.to(move));
+    }
 
     public static class Move {
         final int fromX, fromY, toX, toY;
@@ -930,12 +941,12 @@ public class IA {
         return null;
     }
 
-    private int evaluateDefensiveValue(Game game, Move move) {
+    private int evaluateDefensiveValue(Game game, int move) {
         int[][] board = game.getBoard();
         int score = 0;
 
         // Protect king's position
-        int[] kingPos = findOurKing(board, -1);
+        int[] kingPos = game.getKingPosition(-1);
         if (kingPos != null) {
             // Bonus for moves that protect the king
             if (isDefendingKing(board, move, kingPos)) {
@@ -943,15 +954,15 @@ public class IA {
             }
 
             // Bonus for castling
-            if (Math.abs(board[move.fromX][move.fromY]) == 6 &&
-                    Math.abs(move.fromY - move.toY) == 2) {
+            if (Math.abs(board[fromX(move)][fromY(move)]) == 6 &&
+                    Math.abs(fromY(move) - toY(move)) == 2) {
                 score += 100;
             }
         }
 
         // Control center squares
-        if ((move.toX >= 3 && move.toX <= 4) &&
-                (move.toY >= 3 && move.toY <= 4)) {
+        if ((toX(move) >= 3 && toX(move) <= 4) &&
+                (toY(move) >= 3 && toY(move) <= 4)) {
             score += 30;
         }
 
@@ -963,23 +974,23 @@ public class IA {
         return score;
     }
 
-    private boolean isDefendingKing(int[][] board, Move move, int[] kingPos) {
+    private boolean isDefendingKing(int[][] board, int move, int[] kingPos) {
         // Check if move is within 2 squares of king
-        return Math.abs(move.toX - kingPos[0]) <= 2 && Math.abs(move.toY - kingPos[1]) <= 2;
+        return Math.abs(toX(move) - kingPos[0]) <= 2 && Math.abs(toY(move) - kingPos[1]) <= 2;
     }
 
-    private boolean isProtectingImportantPiece(int[][] board, Move move) {
+    private boolean isProtectingImportantPiece(int[][] board, int move) {
 
         for (int dx = -1; dx <= 1; dx++) {
             for (int dy = -1; dy <= 1; dy++) {
                 if (dx == 0 && dy == 0) continue;
 
-                int newX = move.toX + dx;
-                int newY = move.toY + dy;
+                int newX = toX(move) + dx;
+                int newY = toY(move) + dy;
 
                 if (isInBounds(newX, newY)) {
                     int piece = board[newX][newY];
-                    if (Integer.signum(piece) == Integer.signum(board[move.fromX][move.fromY]) && (Math.abs(piece) == 5 || Math.abs(piece) == 2 || Math.abs(piece) == 4)) {
+                    if (Integer.signum(piece) == Integer.signum(board[fromX(move)][fromY(move)]) && (Math.abs(piece) == 5 || Math.abs(piece) == 2 || Math.abs(piece) == 4)) {
                         return true;
                     }
                 }
@@ -0,0 +1,248 @@
+package com.marcos.chess;
+
+import com.marcos.chess.engine.MoveList;
+import com.marcos.chess.engine.Moves;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+Headless perft (performance test): counts every leaf of the legal move tree to a fixed depth.
+The counts are known for many positions, so a wrong number means the move generator or
+make/unmake has a bug, and the time tells how fast they are.
+
+    perft <depth> [fen]        divide (nodes under each root move), total, time and nodes/sec
+    perft --suite [maxDepth]   runs perft_suite.epd and checks every count
+
+Options for both:
+    --threads <n>   split the subtrees near the root over a ForkJoinPool of n threads
+    --hash <mb>     remember subtree counts in a shared table, transpositions are only counted once
+
+From gradle: ./gradlew perft --args="5" or ./gradlew perft --args="--suite --threads 32 --hash 1024"
+No JavaFX here, only Game and the engine.
+ */
+public class Perft {
+
+    private static final String SUITE = "/perft_suite.epd";
+
+    // Subtrees this deep or less are counted by a single thread, more splitting costs more than it gains
+    private static final int SEQUENTIAL_DEPTH = 3;
+
+    private final Game game;
+    private final MoveList[] moveLists;
+    private final PerftTable table;
+
+    public Perft(Game game, int maxDepth) {
+        this(game, maxDepth, null);
+    }
+
+    Perft(Game game, int maxDepth, PerftTable table) {
+        this.game = game;
+        this.moveLists = MoveList.perPly(Math.max(maxDepth, 1));
+        this.table = table;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int threads = 1;
+        int hashMegabytes = 0;
+        List<String> positional = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--hash" -> hashMegabytes = Integer.parseInt(args[++i]);
+                default -> positional.add(args[i]);
+            }
+        }
+
+        if (positional.isEmpty()) {
+            System.out.println("Usage: perft <depth> [fen] | perft --suite [maxDepth]  [--threads n] [--hash mb]");
+            return;
+        }
+
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        PerftTable table = hashMegabytes > 0 ? new PerftTable(hashMegabytes) : null;
+
+        if (positional.get(0).equals("--suite")) {
+            int maxDepth = positional.size() > 1 ? Integer.parseInt(positional.get(1)) : Integer.MAX_VALUE;
+            boolean passed = runSuite(maxDepth, pool, table);
+            System.exit(passed ? 0 : 1);
+        }
+
+        int depth = Integer.parseInt(positional.get(0));
+        String fen = positional.size() > 1 ? String.join(" ", positional.subList(1, positional.size())) : Fen.START_POSITION;
+        divide(Fen.load(fen), depth, pool, table);
+        if (pool != null) pool.shutdown();
+    }
+
+    public long perft(int depth) {
+        return perft(depth, 0);
+    }
+
+    private long perft(int depth, int ply) {
+        if (depth == 0) return 1;
+
+        MoveList moves = moveLists[ply];
+        game.generateLegalMoves(game.getCurrentPlayer(), moves);
+        // Leaves are counted straight from the list, no need to play them
+        if (depth == 1) return moves.size();
+
+        long hash = game.hash();
+        if (table != null) {
+            long cached = table.probe(hash, depth);
+            if (cached >= 0) return cached;
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            game.makeMove(moves.get(i));
+            nodes += perft(depth - 1, ply + 1);
+            game.unmakeMove();
+        }
+
+        if (table != null) {
+            table.store(hash, depth, nodes);
+        }
+        return nodes;
+    }
+
+    // Single threaded when there is no pool, the game is left as it was either way
+    static long count(Game game, int depth, ForkJoinPool pool, PerftTable table) {
+        if (pool == null || depth <= SEQUENTIAL_DEPTH) {
+            return new Perft(game, depth, table).perft(depth);
+        }
+        return pool.invoke(new PerftTask(game.copy(), depth, table));
+    }
+
+    // Every child gets its own copy of the game, the table is the only thing the threads share
+    private static class PerftTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final Game game;
+        private final int depth;
+        private final PerftTable table;
+
+        PerftTask(Game game, int depth, PerftTable table) {
+            this.game = game;
+            this.depth = depth;
+            this.table = table;
+        }
+
+        @Override
+        protected Long compute() {
+            if (depth <= SEQUENTIAL_DEPTH) {
+                return new Perft(game, depth, table).perft(depth);
+            }
+
+            long hash = game.hash();
+            if (table != null) {
+                long cached = table.probe(hash, depth);
+                if (cached >= 0) return cached;
+            }
+
+            MoveList moves = new MoveList();
+            game.generateLegalMoves(game.getCurrentPlayer(), moves);
+
+            List<PerftTask> children = new ArrayList<>(moves.size());
+            for (int i = 0; i < moves.size(); i++) {
+                Game child = game.copy();
+                child.makeMove(moves.get(i));
+                children.add(new PerftTask(child, depth - 1, table));
+            }
+
+            long nodes = 0;
+            for (PerftTask child : invokeAll(children)) {
+                nodes += child.join();
+            }
+
+            if (table != null) {
+                table.store(hash, depth, nodes);
+            }
+            return nodes;
+        }
+    }
+
+    private static void divide(Game game, int depth, ForkJoinPool pool, PerftTable table) {
+        MoveList rootMoves = new MoveList();
+        game.generateLegalMoves(game.getCurrentPlayer(), rootMoves);
+
+        long start = System.nanoTime();
+        long total = 0;
+        for (int i = 0; i < rootMoves.size(); i++) {
+            int move = rootMoves.get(i);
+            game.makeMove(move);
+            long nodes = depth > 1 ? count(game, depth - 1, pool, table) : 1;
+            game.unmakeMove();
+
+            total += nodes;
+            System.out.println(Moves.toUci(move) + ": " + nodes);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println();
+        System.out.println("Moves: " + rootMoves.size());
+        System.out.println("Nodes: " + total);
+        printSpeed(total, elapsed);
+    }
+
+    // Suite lines look like: <fen> ;D1 20 ;D2 400 ;D3 8902
+    private static boolean runSuite(int maxDepth, ForkJoinPool pool, PerftTable table) throws IOException {
+        InputStream in = Perft.class.getResourceAsStream(SUITE);
+        if (in == null) {
+            throw new IOException("Missing " + SUITE);
+        }
+
+        boolean passed = true;
+        long totalNodes = 0;
+        long totalTime = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+
+                String[] parts = line.split(";");
+                String fen = parts[0].trim();
+                System.out.println(fen);
+
+                for (int i = 1; i < parts.length; i++) {
+                    String[] expected = parts[i].trim().split("\\s+");
+                    int depth = Integer.parseInt(expected[0].substring(1));
+                    long count = Long.parseLong(expected[1]);
+                    if (depth > maxDepth) break;
+
+                    Game game = Fen.load(fen);
+                    long start = System.nanoTime();
+                    long nodes = count(game, depth, pool, table);
+                    long elapsed = System.nanoTime() - start;
+                    totalNodes += nodes;
+                    totalTime += elapsed;
+
+                    boolean ok = nodes == count;
+                    passed &= ok;
+                    System.out.printf("  depth %d: %d %s (%d ms)%n", depth, nodes,
+                            ok ? "ok" : "FAILED, expected " + count, elapsed / 1_000_000);
+                }
+            }
+        }
+
+        System.out.println();
+        System.out.println(passed ? "All counts match" : "SOME COUNTS ARE WRONG");
+        printSpeed(totalNodes, totalTime);
+        return passed;
+    }
+
+    private static void printSpeed(long nodes, long nanos) {
+        long millis = Math.max(nanos / 1_000_000, 1);
+        System.out.println("Time: " + millis + " ms");
+        System.out.println("Nodes/sec: " + nodes * 1000 / millis);
+    }
+}
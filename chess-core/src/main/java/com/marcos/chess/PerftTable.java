@@ -0,0 +1,40 @@
+package com.marcos.chess;
+
+/*
+Shared cache of perft subtree counts, keyed by position hash and depth.
+
+Every thread reads and writes it without locks. An entry is two longs, the data
+(count << 8 | depth) and the key xored with the data. If two threads write the same slot
+at the same time the halves can come from different writes, but then key ^ data no
+longer gives back the hash and the probe just misses.
+ */
+final class PerftTable {
+
+    private final long[] entries;
+    private final int mask;
+
+    PerftTable(int megabytes) {
+        // Round down to a power of two number of 16 byte entries
+        long count = Long.highestOneBit(Math.max(megabytes, 1) * 1024L * 1024L / 16);
+        count = Math.min(count, 1 << 29);
+        this.entries = new long[(int) count * 2];
+        this.mask = (int) count - 1;
+    }
+
+    // The stored count or -1 when the position is not in the table at that depth
+    long probe(long hash, int depth) {
+        int index = ((int) hash & mask) << 1;
+        long data = entries[index + 1];
+        long check = entries[index];
+
+        if ((check ^ data) != hash || (data & 0xFF) != depth) return -1;
+        return data >>> 8;
+    }
+
+    void store(long hash, int depth, long nodes) {
+        int index = ((int) hash & mask) << 1;
+        long data = nodes << 8 | depth;
+        entries[index] = hash ^ data;
+        entries[index + 1] = data;
+    }
+}
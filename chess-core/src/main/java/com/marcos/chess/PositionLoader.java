@@ -0,0 +1,88 @@
+package com.marcos.chess;
+
+import com.marcos.chess.engine.Position;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/*
+Streams FEN/EPD files (one position per line) into Position records.
+
+The file is read through a FileChannel in 1 MB chunks and every line is parsed in place inside
+the chunk, so apart from the Position itself nothing is created per line. Empty lines and lines
+starting with '#' are skipped, EPD operations after the en passant field are ignored.
+ */
+public final class PositionLoader {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private PositionLoader() {
+    }
+
+    public static List<Position> readAll(Path file) throws IOException {
+        List<Position> positions = new ArrayList<>();
+        read(file, positions::add);
+        return positions;
+    }
+
+    // Calls the consumer for every position in the file, in order. Returns how many there were
+    public static long read(Path file, Consumer<Position> consumer) throws IOException {
+        byte[] chunk = new byte[BUFFER_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        // Start of a line that did not fit in the chunk, moved to the front before reading more
+        int carried = 0;
+        long lineNumber = 0;
+        long count = 0;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                int end = buffer.position();
+                int lineStart = 0;
+
+                for (int i = carried; i < end; i++) {
+                    if (chunk[i] != '\n') continue;
+                    lineNumber++;
+                    count += parseLine(chunk, lineStart, i, lineNumber, consumer);
+                    lineStart = i + 1;
+                }
+
+                carried = end - lineStart;
+                if (carried == chunk.length) {
+                    // A single line longer than the whole chunk
+                    chunk = Arrays.copyOf(chunk, chunk.length * 2);
+                    buffer = ByteBuffer.wrap(chunk);
+                } else {
+                    System.arraycopy(chunk, lineStart, chunk, 0, carried);
+                }
+                buffer.position(carried);
+            }
+        }
+
+        // Last line without a line break
+        if (carried > 0) {
+            count += parseLine(chunk, 0, carried, lineNumber + 1, consumer);
+        }
+        return count;
+    }
+
+    private static int parseLine(byte[] buf, int start, int end, long lineNumber,
+                                 Consumer<Position> consumer) {
+        if (end > start && buf[end - 1] == '\r') end--;
+        while (start < end && (buf[start] == ' ' || buf[start] == '\t')) start++;
+        if (start == end || buf[start] == '#') return 0;
+
+        try {
+            consumer.accept(Fen.parse(buf, start, end));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+        }
+        return 1;
+    }
+}
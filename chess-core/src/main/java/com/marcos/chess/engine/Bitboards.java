@@ -0,0 +1,106 @@
+package com.marcos.chess.engine;
+
+/*
+Square numbering used by the engine:
+    a1 = 0, b1 = 1 ... h1 = 7, a2 = 8 ... h8 = 63
+
+The rest of the game works with (row, col) where row 0 is black's back rank,
+so always go through square(), row() and col() when crossing between the two.
+ */
+public final class Bitboards {
+
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_B = FILE_A << 1;
+    public static final long FILE_G = FILE_A << 6;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_2 = RANK_1 << 8;
+    public static final long RANK_3 = RANK_1 << 16;
+    public static final long RANK_6 = RANK_1 << 40;
+    public static final long RANK_7 = RANK_1 << 48;
+    public static final long RANK_8 = RANK_1 << 56;
+
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    public static final long[] KNIGHT_ATTACKS = new long[64];
+    public static final long[] KING_ATTACKS = new long[64];
+    // Indexed by [color][square], the squares a pawn of that color on that square attacks
+    public static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    // Squares strictly between two squares on a shared rank, file or diagonal (empty otherwise)
+    public static final long[][] BETWEEN = new long[64][64];
+    // The whole rank, file or diagonal going through both squares (empty if they are not aligned)
+    public static final long[][] LINE = new long[64][64];
+
+    static {
+        int[][] knightSteps = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+        int[][] kingSteps = {{0, 1}, {1, 1}, {1, 0}, {1, -1}, {0, -1}, {-1, -1}, {-1, 0}, {-1, 1}};
+
+        for (int sq = 0; sq < 64; sq++) {
+            int file = sq & 7;
+            int rank = sq >>> 3;
+
+            for (int[] step : knightSteps) {
+                KNIGHT_ATTACKS[sq] |= bitAt(file + step[0], rank + step[1]);
+            }
+            for (int[] step : kingSteps) {
+                KING_ATTACKS[sq] |= bitAt(file + step[0], rank + step[1]);
+            }
+
+            PAWN_ATTACKS[WHITE][sq] = bitAt(file - 1, rank + 1) | bitAt(file + 1, rank + 1);
+            PAWN_ATTACKS[BLACK][sq] = bitAt(file - 1, rank - 1) | bitAt(file + 1, rank - 1);
+        }
+
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                if (a == b) continue;
+                long ends = (1L << a) | (1L << b);
+
+                if ((rookAttacks(a, 0L) & (1L << b)) != 0) {
+                    LINE[a][b] = (rookAttacks(a, 0L) & rookAttacks(b, 0L)) | ends;
+                    BETWEEN[a][b] = rookAttacks(a, 1L << b) & rookAttacks(b, 1L << a);
+                } else if ((bishopAttacks(a, 0L) & (1L << b)) != 0) {
+                    LINE[a][b] = (bishopAttacks(a, 0L) & bishopAttacks(b, 0L)) | ends;
+                    BETWEEN[a][b] = bishopAttacks(a, 1L << b) & bishopAttacks(b, 1L << a);
+                }
+            }
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    private static long bitAt(int file, int rank) {
+        if (file < 0 || file > 7 || rank < 0 || rank > 7) return 0L;
+        return 1L << (rank * 8 + file);
+    }
+
+    public static int square(int row, int col) {
+        return (7 - row) * 8 + col;
+    }
+
+    public static int row(int square) {
+        return 7 - (square >>> 3);
+    }
+
+    public static int col(int square) {
+        return square & 7;
+    }
+
+    public static int colorIndex(int sign) {
+        return sign > 0 ? WHITE : BLACK;
+    }
+
+    public static long rookAttacks(int square, long occupied) {
+        return Magics.rookAttacks(square, occupied);
+    }
+
+    public static long bishopAttacks(int square, long occupied) {
+        return Magics.bishopAttacks(square, occupied);
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return Magics.rookAttacks(square, occupied) | Magics.bishopAttacks(square, occupied);
+    }
+}
@@ -0,0 +1,544 @@
+package com.marcos.chess.engine;
+
+import java.util.Arrays;
+
+import static com.marcos.chess.engine.Bitboards.*;
+
+/*
+Bitboard version of the position that Game delegates its rules to.
+
+Pieces use the same codes as Game (1 = pawn ... 6 = king, negative for black).
+There is one set per piece (white pawn..king at 0..5, black pawn..king at 6..11),
+one occupancy set per color and a 64 square mailbox so "what is on this square"
+never needs a scan over the sets.
+
+The position also keeps a Zobrist key: one random number per (piece, square), per castling
+rights combination, per en passant file and one for black to move, xored together. Every
+change to the position xors the old part out and the new part in, so hash() is always ready.
+The en passant file only goes in while a pawn could really take there, otherwise the position
+is the same as the one without the square and has to hash the same for repetitions.
+
+Side to move, castling rights, en passant square and both clocks live together in one int
+(see stateWord()), so makeMove saves all of them with a single store and Position copies it as is.
+ */
+public final class BoardState {
+
+    public static final int PAWN = 1;
+    public static final int ROOK = 2;
+    public static final int KNIGHT = 3;
+    public static final int BISHOP = 4;
+    public static final int QUEEN = 5;
+    public static final int KING = 6;
+
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    public static final int ALL_CASTLING = 15;
+
+    // Layout of the state word:
+    //     bit 0       black to move
+    //     bits 1-4    castling rights
+    //     bits 5-11   en passant square + 1, 0 when there is none
+    //     bits 12-19  halfmove clock, capped at 255
+    //     bits 20-31  fullmove number, capped at 4095
+    private static final int BLACK_TO_MOVE = 1;
+    private static final int CASTLING_SHIFT = 1;
+    private static final int EN_PASSANT_SHIFT = 5;
+    private static final int HALFMOVE_SHIFT = 12;
+    private static final int FULLMOVE_SHIFT = 20;
+    private static final int MAX_HALFMOVE = 0xFF;
+    private static final int MAX_FULLMOVE = 0xFFF;
+
+    private final long[] pieces = new long[12];
+    private final long[] colors = new long[2];
+    private long occupied;
+    private final int[] squares = new int[64];
+    // Where each king stands (WHITE = 0, BLACK = 1), -1 when it is not on the board.
+    // Kept up to date by set() so every move, castle, capture and load goes through it
+    private final int[] kingSquares = {-1, -1};
+
+    // Castling rights that survive a move from/to each square, a king or rook leaving home (or a rook
+    // being captured there) clears the matching bits
+    private static final int[] CASTLING_MASK = new int[64];
+
+    private static final long[][] PIECE_KEYS = new long[12][64];
+    private static final long[] CASTLING_KEYS = new long[16];
+    private static final long[] EN_PASSANT_KEYS = new long[8];
+    private static final long BLACK_TO_MOVE_KEY;
+
+    static {
+        // Fixed seed so every machine gets the same keys, the network game compares them
+        long seed = 0x2545F4914F6CDD1DL;
+        for (long[] keys : PIECE_KEYS) {
+            for (int square = 0; square < 64; square++) {
+                keys[square] = seed = nextKey(seed);
+            }
+        }
+        for (int i = 0; i < CASTLING_KEYS.length; i++) {
+            CASTLING_KEYS[i] = seed = nextKey(seed);
+        }
+        for (int i = 0; i < EN_PASSANT_KEYS.length; i++) {
+            EN_PASSANT_KEYS[i] = seed = nextKey(seed);
+        }
+        BLACK_TO_MOVE_KEY = nextKey(seed);
+
+        Arrays.fill(CASTLING_MASK, ALL_CASTLING);
+        CASTLING_MASK[0] = ALL_CASTLING & ~WHITE_QUEENSIDE;
+        CASTLING_MASK[4] = ALL_CASTLING & ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[7] = ALL_CASTLING & ~WHITE_KINGSIDE;
+        CASTLING_MASK[56] = ALL_CASTLING & ~BLACK_QUEENSIDE;
+        CASTLING_MASK[60] = ALL_CASTLING & ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[63] = ALL_CASTLING & ~BLACK_KINGSIDE;
+    }
+
+    private int state = packState(1, ALL_CASTLING, -1, 0, 1);
+    private long hash = CASTLING_KEYS[ALL_CASTLING];
+    // The en passant part currently xored into hash, so it can be taken out again after the
+    // pawns that decided it have moved
+    private long enPassantHash = 0L;
+
+    // Attack map of both sides:
+    //     [color]                  squares attacked by that color (WHITE = 0, BLACK = 1)
+    //     [2 + color * 4 + bit]    that bit of how many pieces of the color attack each square
+    // It is built the first time someone asks for it, from then on set() keeps it up to date, so
+    // makeMove and unmakeMove only touch the pieces that moved and the sliders whose rays go through
+    // the squares that changed. Nothing is done for it as long as nobody asks. Squares defended by
+    // own pieces count too, pawn pushes do not (they never capture).
+    private static final int ATTACK_MAP_SIZE = 10;
+    private final long[] attackMap = new long[ATTACK_MAP_SIZE];
+    private boolean attackMapValid = false;
+
+    // Undo stack, one entry per move played with makeMove. It only grows when a game gets
+    // longer than anything seen before, so exploring positions does not allocate
+    private int[] undoMoves = new int[256];
+    private int[] undoCaptured = new int[256];
+    private int[] undoState = new int[256];
+    private long[] undoHash = new long[256];
+    private int ply = 0;
+
+    // xorshift64, only used to fill the key tables
+    private static long nextKey(long x) {
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        return x;
+    }
+
+    public static int packState(int sideToMove, int castlingRights, int enPassantSquare, int halfmoveClock, int fullmoveNumber) {
+        return (sideToMove < 0 ? BLACK_TO_MOVE : 0)
+                | castlingRights << CASTLING_SHIFT
+                | (enPassantSquare + 1) << EN_PASSANT_SHIFT
+                | Math.min(halfmoveClock, MAX_HALFMOVE) << HALFMOVE_SHIFT
+                | Math.min(fullmoveNumber, MAX_FULLMOVE) << FULLMOVE_SHIFT;
+    }
+
+    public static int pieceIndex(int piece) {
+        return piece > 0 ? piece - 1 : 5 - piece;
+    }
+
+    public void clear() {
+        Arrays.fill(pieces, 0L);
+        Arrays.fill(squares, 0);
+        kingSquares[WHITE] = -1;
+        kingSquares[BLACK] = -1;
+        colors[WHITE] = 0L;
+        colors[BLACK] = 0L;
+        occupied = 0L;
+        // No pawns left, so no en passant key either
+        hash = (getSideToMove() < 0 ? BLACK_TO_MOVE_KEY : 0L) ^ CASTLING_KEYS[getCastlingRights()];
+        enPassantHash = 0L;
+        attackMapValid = false;
+    }
+
+    public void load(int[][] board) {
+        clear();
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                if (board[row][col] != 0) {
+                    set(square(row, col), board[row][col]);
+                }
+            }
+        }
+        // The en passant square is kept, its key depends on the pawns that are there now
+        setEnPassantSquare(getEnPassantSquare());
+    }
+
+    public void set(int square, int piece) {
+        long bit = 1L << square;
+        int old = squares[square];
+        // Sliders that see the square reach further or less far once it is emptied or filled
+        long sliders = 0L;
+        if (attackMapValid) {
+            if (old != 0) subtractAttacks(colorIndex(old), attacks(square));
+            if ((old == 0) != (piece == 0)) {
+                sliders = slidersTo(square);
+                for (long rest = sliders; rest != 0; rest &= rest - 1) {
+                    int from = Long.numberOfTrailingZeros(rest);
+                    subtractAttacks(colorIndex(squares[from]), attacks(from));
+                }
+            }
+        }
+
+        if (old != 0) {
+            pieces[pieceIndex(old)] ^= bit;
+            colors[colorIndex(old)] ^= bit;
+            hash ^= PIECE_KEYS[pieceIndex(old)][square];
+            // unmakeMove puts the king back before clearing the square it had moved to
+            if ((old == KING || old == -KING) && kingSquares[colorIndex(old)] == square) {
+                kingSquares[colorIndex(old)] = -1;
+            }
+        }
+
+        squares[square] = piece;
+        if (piece != 0) {
+            pieces[pieceIndex(piece)] |= bit;
+            colors[colorIndex(piece)] |= bit;
+            hash ^= PIECE_KEYS[pieceIndex(piece)][square];
+            if (piece == KING || piece == -KING) {
+                kingSquares[colorIndex(piece)] = square;
+            }
+        }
+        occupied = colors[WHITE] | colors[BLACK];
+
+        if (attackMapValid) {
+            for (long rest = sliders; rest != 0; rest &= rest - 1) {
+                int from = Long.numberOfTrailingZeros(rest);
+                addAttacks(colorIndex(squares[from]), attacks(from));
+            }
+            if (piece != 0) addAttacks(colorIndex(piece), attacks(square));
+        }
+    }
+
+    // Rooks, bishops and queens of both sides that attack the square
+    private long slidersTo(int square) {
+        long queens = pieces[QUEEN - 1] | pieces[6 + QUEEN - 1];
+        long straight = pieces[ROOK - 1] | pieces[6 + ROOK - 1] | queens;
+        long diagonal = pieces[BISHOP - 1] | pieces[6 + BISHOP - 1] | queens;
+        return (rookAttacks(square, occupied) & straight) | (bishopAttacks(square, occupied) & diagonal);
+    }
+
+    public int pieceAt(int square) {
+        return squares[square];
+    }
+
+    public long pieces(int piece) {
+        return pieces[pieceIndex(piece)];
+    }
+
+    public long occupancy(int sign) {
+        return colors[colorIndex(sign)];
+    }
+
+    public long occupied() {
+        return occupied;
+    }
+
+    public int getSideToMove() {
+        return (state & BLACK_TO_MOVE) != 0 ? -1 : 1;
+    }
+
+    public void setSideToMove(int sideToMove) {
+        if ((sideToMove < 0) != (getSideToMove() < 0)) {
+            hash ^= BLACK_TO_MOVE_KEY;
+            state ^= BLACK_TO_MOVE;
+        }
+    }
+
+    public int getCastlingRights() {
+        return (state >>> CASTLING_SHIFT) & ALL_CASTLING;
+    }
+
+    public void setCastlingRights(int castlingRights) {
+        hash ^= CASTLING_KEYS[getCastlingRights()] ^ CASTLING_KEYS[castlingRights];
+        state = (state & ~(ALL_CASTLING << CASTLING_SHIFT)) | castlingRights << CASTLING_SHIFT;
+    }
+
+    // Takes away the castling rights a move between the two squares loses, for moves that do not
+    // go through makeMove (the UI moves pieces one by one)
+    public void updateCastlingRights(int from, int to) {
+        setCastlingRights(getCastlingRights() & CASTLING_MASK[from] & CASTLING_MASK[to]);
+    }
+
+    public int getEnPassantSquare() {
+        return ((state >>> EN_PASSANT_SHIFT) & 0x7F) - 1;
+    }
+
+    // Set after the pieces of a move are in place, the key looks at the pawns next to the square
+    public void setEnPassantSquare(int enPassantSquare) {
+        hash ^= enPassantHash;
+        enPassantHash = enPassantKey(enPassantSquare);
+        hash ^= enPassantHash;
+        state = (state & ~(0x7F << EN_PASSANT_SHIFT)) | (enPassantSquare + 1) << EN_PASSANT_SHIFT;
+    }
+
+    // Only when a pawn of the other side stands next to the pawn that just moved two squares:
+    // on the 3rd rank white pushed and black takes, on the 6th the other way round
+    private long enPassantKey(int square) {
+        if (square < 0) return 0L;
+        int capturer = square < 32 ? BLACK : WHITE;
+        long pawns = pieces[capturer * 6 + PAWN - 1];
+        return (PAWN_ATTACKS[capturer ^ 1][square] & pawns) != 0 ? EN_PASSANT_KEYS[square & 7] : 0L;
+    }
+
+    // Moves since the last capture or pawn move (fifty move rule) and the move number, as in FEN
+    public int getHalfmoveClock() {
+        return (state >>> HALFMOVE_SHIFT) & MAX_HALFMOVE;
+    }
+
+    public void setHalfmoveClock(int halfmoveClock) {
+        state = (state & ~(MAX_HALFMOVE << HALFMOVE_SHIFT)) | Math.min(halfmoveClock, MAX_HALFMOVE) << HALFMOVE_SHIFT;
+    }
+
+    public int getFullmoveNumber() {
+        return state >>> FULLMOVE_SHIFT;
+    }
+
+    public void setFullmoveNumber(int fullmoveNumber) {
+        state = (state & ~(MAX_FULLMOVE << FULLMOVE_SHIFT)) | Math.min(fullmoveNumber, MAX_FULLMOVE) << FULLMOVE_SHIFT;
+    }
+
+    // Everything but the pieces in one int, layout at the top of the class
+    public int stateWord() {
+        return state;
+    }
+
+    // Goes through the setters so the hash follows, call it after the pieces are in place
+    public void setStateWord(int word) {
+        setSideToMove((word & BLACK_TO_MOVE) != 0 ? -1 : 1);
+        setCastlingRights((word >>> CASTLING_SHIFT) & ALL_CASTLING);
+        setEnPassantSquare(((word >>> EN_PASSANT_SHIFT) & 0x7F) - 1);
+        state = word;
+    }
+
+    public long hash() {
+        return hash;
+    }
+
+    // The key worked out from scratch, for checking that the incremental one never drifts
+    long computeHash() {
+        long key = (getSideToMove() < 0 ? BLACK_TO_MOVE_KEY : 0L) ^ CASTLING_KEYS[getCastlingRights()];
+        for (int square = 0; square < 64; square++) {
+            if (squares[square] != 0) key ^= PIECE_KEYS[pieceIndex(squares[square])][square];
+        }
+        return key ^ enPassantKey(getEnPassantSquare());
+    }
+
+    public int getPly() {
+        return ply;
+    }
+
+    public void makeMove(int move) {
+        if (ply == undoMoves.length) {
+            growUndoStack();
+        }
+
+        undoMoves[ply] = move;
+        undoState[ply] = state;
+        undoHash[ply] = hash;
+
+        undoCaptured[ply] = playMove(move);
+        ply++;
+    }
+
+    // Plays the move without the undo stack and returns the captured piece (0 when there is none).
+    // takeBack(move, captured, state before) reverses it, for callers that keep their own history
+    public int playMove(int move) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int piece = squares[from];
+        int sign = Integer.signum(piece);
+        int type = Math.abs(piece);
+        int captured = squares[to];
+
+        if (type == PAWN && to == getEnPassantSquare() && ((from ^ to) & 7) != 0) {
+            int victim = sign > 0 ? to - 8 : to + 8;
+            captured = squares[victim];
+            set(victim, 0);
+        }
+
+        int promotion = Moves.promotion(move);
+        set(from, 0);
+        set(to, promotion != 0 ? promotion * sign : piece);
+
+        if (type == KING && Math.abs(to - from) == 2) {
+            if (to > from) {
+                set(from + 1, squares[from + 3]);
+                set(from + 3, 0);
+            } else {
+                set(from - 1, squares[from - 4]);
+                set(from - 4, 0);
+            }
+        }
+
+        updateCastlingRights(from, to);
+        setEnPassantSquare(type == PAWN && Math.abs(to - from) == 16 ? (from + to) >>> 1 : -1);
+        setSideToMove(-sign);
+        setHalfmoveClock(type == PAWN || captured != 0 ? 0 : getHalfmoveClock() + 1);
+        if (sign < 0) {
+            setFullmoveNumber(getFullmoveNumber() + 1);
+        }
+        return captured;
+    }
+
+    public void unmakeMove() {
+        ply--;
+        state = undoState[ply];
+        int enPassantSquare = getEnPassantSquare();
+        restorePieces(undoMoves[ply], undoCaptured[ply], enPassantSquare);
+
+        hash = undoHash[ply];
+        enPassantHash = enPassantKey(enPassantSquare);
+    }
+
+    // Reverses playMove, previousState being stateWord() from before the move
+    public void takeBack(int move, int captured, int previousState) {
+        restorePieces(move, captured, ((previousState >>> EN_PASSANT_SHIFT) & 0x7F) - 1);
+        setStateWord(previousState);
+    }
+
+    private void restorePieces(int move, int captured, int enPassantSquare) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int sign = Integer.signum(squares[to]);
+        int piece = Moves.promotion(move) != 0 ? PAWN * sign : squares[to];
+
+        set(from, piece);
+        if (Math.abs(piece) == PAWN && to == enPassantSquare && ((from ^ to) & 7) != 0) {
+            set(to, 0);
+            set(sign > 0 ? to - 8 : to + 8, captured);
+        } else {
+            set(to, captured);
+        }
+
+        if (Math.abs(piece) == KING && Math.abs(to - from) == 2) {
+            if (to > from) {
+                set(from + 3, squares[from + 1]);
+                set(from + 1, 0);
+            } else {
+                set(from - 4, squares[from - 1]);
+                set(from - 1, 0);
+            }
+        }
+    }
+
+    // The move that unmakeMove would take back, or Moves.NONE at the root
+    public int lastMove() {
+        return ply == 0 ? Moves.NONE : undoMoves[ply - 1];
+    }
+
+    private void growUndoStack() {
+        int size = undoMoves.length * 2;
+        undoMoves = Arrays.copyOf(undoMoves, size);
+        undoCaptured = Arrays.copyOf(undoCaptured, size);
+        undoState = Arrays.copyOf(undoState, size);
+        undoHash = Arrays.copyOf(undoHash, size);
+    }
+
+    public int kingSquare(int sign) {
+        return kingSquares[colorIndex(sign)];
+    }
+
+    // Every piece of the given side that attacks the square, with a custom occupancy so
+    // callers can ask "what if this piece was gone" without touching the board
+    public long attackersTo(int square, int bySign, long occupancy) {
+        int base = colorIndex(bySign) * 6;
+        long queens = pieces[base + QUEEN - 1];
+
+        return (PAWN_ATTACKS[colorIndex(-bySign)][square] & pieces[base + PAWN - 1])
+                | (KNIGHT_ATTACKS[square] & pieces[base + KNIGHT - 1])
+                | (KING_ATTACKS[square] & pieces[base + KING - 1])
+                | (rookAttacks(square, occupancy) & (pieces[base + ROOK - 1] | queens))
+                | (bishopAttacks(square, occupancy) & (pieces[base + BISHOP - 1] | queens));
+    }
+
+    // Yes/no version of attackersTo: looks out from the square with the cheap tables first,
+    // then along the rays, and stops at the first attacker it finds
+    public boolean isSquareAttacked(int square, int bySign, long occupancy) {
+        int base = colorIndex(bySign) * 6;
+        if ((PAWN_ATTACKS[colorIndex(-bySign)][square] & pieces[base + PAWN - 1]) != 0) return true;
+        if ((KNIGHT_ATTACKS[square] & pieces[base + KNIGHT - 1]) != 0) return true;
+        if ((KING_ATTACKS[square] & pieces[base + KING - 1]) != 0) return true;
+
+        long queens = pieces[base + QUEEN - 1];
+        long rooks = pieces[base + ROOK - 1] | queens;
+        if (rooks != 0 && (rookAttacks(square, occupancy) & rooks) != 0) return true;
+        long bishops = pieces[base + BISHOP - 1] | queens;
+        return bishops != 0 && (bishopAttacks(square, occupancy) & bishops) != 0;
+    }
+
+    // Uses the attack map when it is already there, otherwise probing is cheaper than building it
+    public boolean isSquareAttacked(int square, int bySign) {
+        if (attackMapValid) {
+            return (attackMap[colorIndex(bySign)] & (1L << square)) != 0;
+        }
+        return isSquareAttacked(square, bySign, occupied);
+    }
+
+    // Every square attacked (or defended) by at least one piece of the side
+    public long attackedSquares(int sign) {
+        if (!attackMapValid) buildAttackMap();
+        return attackMap[colorIndex(sign)];
+    }
+
+    // How many pieces of the side attack (or defend) the square
+    public int attackerCount(int square, int sign) {
+        if (!attackMapValid) buildAttackMap();
+        int base = 2 + colorIndex(sign) * 4;
+        int count = 0;
+        for (int bit = 0; bit < 4; bit++) {
+            count |= (int) ((attackMap[base + bit] >>> square) & 1) << bit;
+        }
+        return count;
+    }
+
+    private void buildAttackMap() {
+        Arrays.fill(attackMap, 0L);
+        for (int color = WHITE; color <= BLACK; color++) {
+            for (long rest = colors[color]; rest != 0; rest &= rest - 1) {
+                addAttacks(color, attacks(Long.numberOfTrailingZeros(rest)));
+            }
+        }
+        attackMapValid = true;
+    }
+
+    // Adds one to the count of every square in the set at once, the carry ripples up the bit planes.
+    // Four planes count up to 15 attackers of one color on a square, more is not possible without
+    // a pile of promotions
+    private void addAttacks(int color, long squares) {
+        attackMap[color] |= squares;
+        int base = 2 + color * 4;
+        long carry = squares;
+        for (int bit = 0; bit < 4 && carry != 0; bit++) {
+            long plane = attackMap[base + bit];
+            attackMap[base + bit] = plane ^ carry;
+            carry &= plane;
+        }
+    }
+
+    // The other way round, the borrow ripples up. A square is attacked while any plane has it
+    private void subtractAttacks(int color, long squares) {
+        int base = 2 + color * 4;
+        long borrow = squares;
+        for (int bit = 0; bit < 4 && borrow != 0; bit++) {
+            long plane = attackMap[base + bit];
+            attackMap[base + bit] = plane ^ borrow;
+            borrow &= ~plane;
+        }
+        attackMap[color] = attackMap[base] | attackMap[base + 1] | attackMap[base + 2] | attackMap[base + 3];
+    }
+
+    // Squares attacked by the piece standing on the square (not filtered by own pieces)
+    public long attacks(int square) {
+        int piece = squares[square];
+        return switch (Math.abs(piece)) {
+            case PAWN -> PAWN_ATTACKS[colorIndex(piece)][square];
+            case ROOK -> rookAttacks(square, occupied);
+            case KNIGHT -> KNIGHT_ATTACKS[square];
+            case BISHOP -> bishopAttacks(square, occupied);
+            case QUEEN -> queenAttacks(square, occupied);
+            case KING -> KING_ATTACKS[square];
+            default -> 0L;
+        };
+    }
+}
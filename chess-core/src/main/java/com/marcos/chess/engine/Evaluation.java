@@ -0,0 +1,135 @@
+package com.marcos.chess.engine;
+
+import static com.marcos.chess.engine.BoardState.*;
+
+/*
+Static evaluation for the search: material plus a piece-square table per piece type.
+
+Scores are in centipawns from the point of view of the side to move, which is what negamax wants.
+The piece values are the ones IA has always used. The tables are written the way a board is drawn,
+rank 8 on top and seen from white, so a white piece on square s reads entry s ^ 56 and a black
+piece reads entry s directly (the board flipped).
+
+Nothing here is incremental yet, it walks the piece bitboards once per call.
+ */
+public final class Evaluation {
+
+    // Indexed by piece type (PAWN .. KING), the king is never traded so it is worth nothing here
+    public static final int[] PIECE_VALUES = {0, 100, 500, 300, 300, 900, 0};
+
+    private static final int[] PAWN_TABLE = {
+             0,   0,   0,   0,   0,   0,   0,   0,
+            50,  50,  50,  50,  50,  50,  50,  50,
+            10,  10,  20,  30,  30,  20,  10,  10,
+             5,   5,  10,  25,  25,  10,   5,   5,
+             0,   0,   0,  20,  20,   0,   0,   0,
+             5,  -5, -10,   0,   0, -10,  -5,   5,
+             5,  10,  10, -20, -20,  10,  10,   5,
+             0,   0,   0,   0,   0,   0,   0,   0
+    };
+
+    private static final int[] KNIGHT_TABLE = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20,   0,   0,   0,   0, -20, -40,
+            -30,   0,  10,  15,  15,  10,   0, -30,
+            -30,   5,  15,  20,  20,  15,   5, -30,
+            -30,   0,  15,  20,  20,  15,   0, -30,
+            -30,   5,  10,  15,  15,  10,   5, -30,
+            -40, -20,   0,   5,   5,   0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50
+    };
+
+    private static final int[] BISHOP_TABLE = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,  10,  10,   5,   0, -10,
+            -10,   5,   5,  10,  10,   5,   5, -10,
+            -10,   0,  10,  10,  10,  10,   0, -10,
+            -10,  10,  10,  10,  10,  10,  10, -10,
+            -10,   5,   0,   0,   0,   0,   5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20
+    };
+
+    private static final int[] ROOK_TABLE = {
+             0,   0,   0,   0,   0,   0,   0,   0,
+             5,  10,  10,  10,  10,  10,  10,   5,
+            -5,   0,   0,   0,   0,   0,   0,  -5,
+            -5,   0,   0,   0,   0,   0,   0,  -5,
+            -5,   0,   0,   0,   0,   0,   0,  -5,
+            -5,   0,   0,   0,   0,   0,   0,  -5,
+            -5,   0,   0,   0,   0,   0,   0,  -5,
+             0,   0,   0,   5,   5,   0,   0,   0
+    };
+
+    private static final int[] QUEEN_TABLE = {
+            -20, -10, -10,  -5,  -5, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,   5,   5,   5,   0, -10,
+             -5,   0,   5,   5,   5,   5,   0,  -5,
+              0,   0,   5,   5,   5,   5,   0,  -5,
+            -10,   5,   5,   5,   5,   5,   0, -10,
+            -10,   0,   5,   0,   0,   0,   0, -10,
+            -20, -10, -10,  -5,  -5, -10, -10, -20
+    };
+
+    // Middle game: stay behind the pawns, castled
+    private static final int[] KING_TABLE = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+             20,  20,   0,   0,   0,   0,  20,  20,
+             20,  30,  10,   0,   0,  10,  30,  20
+    };
+
+    // End game: walk to the center
+    private static final int[] KING_ENDGAME_TABLE = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10,   0,   0, -10, -20, -30,
+            -30, -10,  20,  30,  30,  20, -10, -30,
+            -30, -10,  30,  40,  40,  30, -10, -30,
+            -30, -10,  30,  40,  40,  30, -10, -30,
+            -30, -10,  20,  30,  30,  20, -10, -30,
+            -30, -30,   0,   0,   0,   0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50
+    };
+
+    // Indexed by piece type like PIECE_VALUES
+    private static final int[][] TABLES = {null, PAWN_TABLE, ROOK_TABLE, KNIGHT_TABLE, BISHOP_TABLE, QUEEN_TABLE, KING_TABLE};
+
+    // Below this much material (pawns and kings not counted) for both sides together it is an end game
+    private static final int ENDGAME_MATERIAL = 2 * PIECE_VALUES[ROOK] + 2 * PIECE_VALUES[KNIGHT];
+
+    private Evaluation() {
+    }
+
+    public static int evaluate(BoardState position) {
+        int white = 0;
+        int black = 0;
+        int pieceMaterial = 0;
+
+        for (int type = PAWN; type < KING; type++) {
+            int[] table = TABLES[type];
+            for (long rest = position.pieces(type); rest != 0; rest &= rest - 1) {
+                white += PIECE_VALUES[type] + table[Long.numberOfTrailingZeros(rest) ^ 56];
+            }
+            for (long rest = position.pieces(-type); rest != 0; rest &= rest - 1) {
+                black += PIECE_VALUES[type] + table[Long.numberOfTrailingZeros(rest)];
+            }
+            if (type != PAWN) {
+                pieceMaterial += PIECE_VALUES[type] * Long.bitCount(position.pieces(type) | position.pieces(-type));
+            }
+        }
+
+        int[] kingTable = pieceMaterial <= ENDGAME_MATERIAL ? KING_ENDGAME_TABLE : KING_TABLE;
+        int whiteKing = position.kingSquare(1);
+        int blackKing = position.kingSquare(-1);
+        if (whiteKing >= 0) white += kingTable[whiteKing ^ 56];
+        if (blackKing >= 0) black += kingTable[blackKing];
+
+        int score = white - black;
+        return position.getSideToMove() > 0 ? score : -score;
+    }
+}
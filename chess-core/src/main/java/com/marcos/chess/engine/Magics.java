@@ -0,0 +1,139 @@
+package com.marcos.chess.engine;
+
+/*
+Magic bitboard tables for rook and bishop attacks.
+
+For every square the relevant blockers (the ray squares minus the board edge) are masked out of the
+occupancy, multiplied by a magic number and shifted down, which gives a perfect index into a table of
+precomputed attack sets. The magic numbers below were found once with a seeded xorshift search, the
+tables themselves are filled when the class loads. Rays are only walked here while building them.
+ */
+final class Magics {
+
+    private static final long[] ROOK_MAGICS = {
+            0x0A80004000801220L, 0x8040004010002008L, 0x2080200010008008L, 0x1100100008210004L,
+            0xC200209084020008L, 0x2100010004000208L, 0x0400081000822421L, 0x0200010422048844L,
+            0x0800800080400024L, 0x0001402000401000L, 0x3000801000802001L, 0x4400800800100083L,
+            0x0904802402480080L, 0x4040800400020080L, 0x0018808042000100L, 0x4040800080004100L,
+            0x0040048001458024L, 0x00A0004000205000L, 0x3100808010002000L, 0x4825010010000820L,
+            0x5004808008000401L, 0x2024818004000A00L, 0x0005808002000100L, 0x2100060004806104L,
+            0x0080400880008421L, 0x4062220600410280L, 0x010A004A00108022L, 0x0000100080080080L,
+            0x0021000500080010L, 0x0044000202001008L, 0x0000100400080102L, 0xC020128200040545L,
+            0x0080002000400040L, 0x0000804000802004L, 0x0000120022004080L, 0x010A386103001001L,
+            0x9010080080800400L, 0x8440020080800400L, 0x0004228824001001L, 0x000000490A000084L,
+            0x0080002000504000L, 0x200020005000C000L, 0x0012088020420010L, 0x0010010080080800L,
+            0x0085001008010004L, 0x0002000204008080L, 0x0040413002040008L, 0x0000304081020004L,
+            0x0080204000800080L, 0x3008804000290100L, 0x1010100080200080L, 0x2008100208028080L,
+            0x5000850800910100L, 0x8402019004680200L, 0x0120911028020400L, 0x0000008044010200L,
+            0x0020850200244012L, 0x0020850200244012L, 0x0000102001040841L, 0x140900040A100021L,
+            0x000200282410A102L, 0x000200282410A102L, 0x000200282410A102L, 0x4048240043802106L
+    };
+
+    private static final long[] BISHOP_MAGICS = {
+            0x40106000A1160020L, 0x0020010250810120L, 0x2010010220280081L, 0x002806004050C040L,
+            0x0002021018000000L, 0x2001112010000400L, 0x0881010120218080L, 0x1030820110010500L,
+            0x0000120222042400L, 0x2000020404040044L, 0x8000480094208000L, 0x0003422A02000001L,
+            0x000A220210100040L, 0x8004820202226000L, 0x0018234854100800L, 0x0100004042101040L,
+            0x0004001004082820L, 0x0010000810010048L, 0x1014004208081300L, 0x2080818802044202L,
+            0x0040880C00A00100L, 0x0080400200522010L, 0x0001000188180B04L, 0x0080249202020204L,
+            0x1004400004100410L, 0x00013100A0022206L, 0x2148500001040080L, 0x4241080011004300L,
+            0x4020848004002000L, 0x10101380D1004100L, 0x0008004422020284L, 0x01010A1041008080L,
+            0x0808080400082121L, 0x0808080400082121L, 0x0091128200100C00L, 0x0202200802010104L,
+            0x8C0A020200440085L, 0x01A0008080B10040L, 0x0889520080122800L, 0x100902022202010AL,
+            0x04081A0816002000L, 0x0000681208005000L, 0x8170840041008802L, 0x0A00004200810805L,
+            0x0830404408210100L, 0x2602208106006102L, 0x1048300680802628L, 0x2602208106006102L,
+            0x0602010120110040L, 0x0941010801043000L, 0x000040440A210428L, 0x0008240020880021L,
+            0x0400002012048200L, 0x00AC102001210220L, 0x0220021002009900L, 0x84440C080A013080L,
+            0x0001008044200440L, 0x0004C04410841000L, 0x2000500104011130L, 0x1A0C010011C20229L,
+            0x0044800112202200L, 0x0434804908100424L, 0x0300404822C08200L, 0x48081010008A2A80L
+    };
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final long[][] ROOK_TABLE = new long[64][];
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final long[][] BISHOP_TABLE = new long[64][];
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            ROOK_MASKS[square] = relevantMask(square, ROOK_DIRECTIONS);
+            ROOK_SHIFTS[square] = 64 - Long.bitCount(ROOK_MASKS[square]);
+            ROOK_TABLE[square] = buildTable(square, ROOK_MASKS[square], ROOK_MAGICS[square], ROOK_SHIFTS[square], ROOK_DIRECTIONS);
+
+            BISHOP_MASKS[square] = relevantMask(square, BISHOP_DIRECTIONS);
+            BISHOP_SHIFTS[square] = 64 - Long.bitCount(BISHOP_MASKS[square]);
+            BISHOP_TABLE[square] = buildTable(square, BISHOP_MASKS[square], BISHOP_MAGICS[square], BISHOP_SHIFTS[square], BISHOP_DIRECTIONS);
+        }
+    }
+
+    private Magics() {
+    }
+
+    static long rookAttacks(int square, long occupied) {
+        return ROOK_TABLE[square][(int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+    }
+
+    static long bishopAttacks(int square, long occupied) {
+        return BISHOP_TABLE[square][(int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+    }
+
+    private static long[] buildTable(int square, long mask, long magic, int shift, int[][] directions) {
+        long[] table = new long[1 << (64 - shift)];
+        boolean[] used = new boolean[table.length];
+
+        // Go through every subset of the mask (carry rippler trick)
+        long subset = 0L;
+        do {
+            long attacks = slowAttacks(square, subset, directions);
+            int index = (int) ((subset * magic) >>> shift);
+            if (used[index] && table[index] != attacks) {
+                throw new IllegalStateException("Bad magic number for square " + square);
+            }
+            used[index] = true;
+            table[index] = attacks;
+            subset = (subset - mask) & mask;
+        } while (subset != 0);
+
+        return table;
+    }
+
+    // Blockers on the last square of a ray never change the attacks, so they are left out of the mask
+    private static long relevantMask(int square, int[][] directions) {
+        long mask = 0L;
+        for (int[] direction : directions) {
+            int file = (square & 7) + direction[0];
+            int rank = (square >>> 3) + direction[1];
+            while (isInside(file + direction[0], rank + direction[1])) {
+                mask |= 1L << (rank * 8 + file);
+                file += direction[0];
+                rank += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    private static long slowAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0L;
+        for (int[] direction : directions) {
+            int file = (square & 7) + direction[0];
+            int rank = (square >>> 3) + direction[1];
+            while (isInside(file, rank)) {
+                long bit = 1L << (rank * 8 + file);
+                attacks |= bit;
+                if ((occupied & bit) != 0) break;
+                file += direction[0];
+                rank += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    private static boolean isInside(int file, int rank) {
+        return file >= 0 && file < 8 && rank >= 0 && rank < 8;
+    }
+}
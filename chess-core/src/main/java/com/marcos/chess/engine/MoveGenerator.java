@@ -0,0 +1,284 @@
+package com.marcos.chess.engine;
+
+import static com.marcos.chess.engine.Bitboards.*;
+import static com.marcos.chess.engine.BoardState.*;
+
+/*
+Legal move generator.
+
+Instead of trying every pseudo-legal move and checking the king afterwards, the checking pieces and
+the pinned pieces are worked out once per position:
+    - in double check only the king can move
+    - in single check every other piece must capture the checker or block the ray (the check mask)
+    - a pinned piece can only move along the line between its king and the pinner
+King moves are tested with the king taken off the board so it cannot hide behind itself, en passant is
+tested by playing it on the occupancy because it removes two pieces from the same rank.
+
+One instance keeps the masks of the last prepared position, so every thread needs its own.
+ */
+public final class MoveGenerator {
+
+    private static final int[] PROMOTIONS = {QUEEN, KNIGHT, ROOK, BISHOP};
+
+    private BoardState position;
+    private int side;
+    private int color;
+    private int king;
+    private long own;
+    private long enemy;
+    private long occupied;
+    private long checkers;
+    private long checkMask;
+    private long pinned;
+
+    // Fills the list with every legal move of the side to move
+    public void generate(BoardState position, MoveList moves) {
+        generate(position, position.getSideToMove(), moves);
+    }
+
+    public void generate(BoardState position, int side, MoveList moves) {
+        moves.clear();
+        prepare(position, side);
+
+        if (king >= 0) {
+            addMoves(moves, king, kingTargets());
+            if (Long.bitCount(checkers) > 1) return;
+        }
+
+        long pieces = king >= 0 ? own & ~(1L << king) : own;
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            addMoves(moves, from, pieceTargets(from));
+        }
+    }
+
+    // Only the captures and promotions among the legal moves, for the quiescence search.
+    // Same masks as generate(), the targets are just cut down before the moves are added
+    public void generateCaptures(BoardState position, MoveList moves) {
+        moves.clear();
+        prepare(position, position.getSideToMove());
+
+        if (king >= 0) {
+            addMoves(moves, king, safeKingSquares(KING_ATTACKS[king] & enemy));
+            if (Long.bitCount(checkers) > 1) return;
+        }
+
+        int enPassant = position.getEnPassantSquare();
+        long pawnTargets = enemy | (color == WHITE ? RANK_8 : RANK_1) | (enPassant >= 0 ? 1L << enPassant : 0L);
+        long pieces = king >= 0 ? own & ~(1L << king) : own;
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            boolean isPawn = Math.abs(position.pieceAt(from)) == PAWN;
+            addMoves(moves, from, pieceTargets(from) & (isPawn ? pawnTargets : enemy));
+        }
+    }
+
+    // Whether the side to move has any legal move at all, stops at the first piece that can move.
+    // The other pieces go first because one of them nearly always has a move and their targets
+    // are cheap, the king needs an attack probe per square
+    public boolean hasLegalMove(BoardState position) {
+        prepare(position, position.getSideToMove());
+
+        if (Long.bitCount(checkers) <= 1) {
+            long pieces = king >= 0 ? own & ~(1L << king) : own;
+            while (pieces != 0) {
+                int from = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                if (pieceTargets(from) != 0) return true;
+            }
+        }
+        return king >= 0 && kingTargets() != 0;
+    }
+
+    // Checks a single move of the side to move without building the move list: only the targets of
+    // the moving piece are worked out, with the same check and pin masks as generate().
+    // Flags are ignored since makeMove works them out itself. A pawn reaching the last rank may come
+    // without a promotion piece (the UI asks for it afterwards), but any piece that is given has to fit
+    public boolean isLegal(BoardState position, int move) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int piece = position.pieceAt(from);
+        if (piece == 0 || Integer.signum(piece) != position.getSideToMove()) return false;
+
+        int promotion = Moves.promotion(move);
+        if (promotion != 0 && (Math.abs(piece) != PAWN || (to >= 8 && to < 56) || promotion < ROOK || promotion > QUEEN)) {
+            return false;
+        }
+
+        prepare(position, Integer.signum(piece));
+        long bit = 1L << to;
+        if (from == king) {
+            // Only the one target square is probed, not all eight
+            if ((KING_ATTACKS[king] & ~own & bit) != 0) {
+                return !position.isSquareAttacked(to, -side, occupied ^ (1L << king));
+            }
+            return checkers == 0 && (castlingTargets() & bit) != 0;
+        }
+        return Long.bitCount(checkers) <= 1 && (pieceTargets(from) & bit) != 0;
+    }
+
+    // Legal target squares of the piece standing on the square, whichever side it belongs to
+    public long legalTargets(BoardState position, int square) {
+        int piece = position.pieceAt(square);
+        if (piece == 0) return 0L;
+
+        prepare(position, Integer.signum(piece));
+        if (square == king) return kingTargets();
+        if (Long.bitCount(checkers) > 1) return 0L;
+        return pieceTargets(square);
+    }
+
+    private void prepare(BoardState position, int side) {
+        this.position = position;
+        this.side = side;
+        this.color = colorIndex(side);
+        this.own = position.occupancy(side);
+        this.enemy = position.occupancy(-side);
+        this.occupied = position.occupied();
+        this.king = position.kingSquare(side);
+
+        checkers = 0L;
+        checkMask = ~0L;
+        pinned = 0L;
+        if (king < 0) return;
+
+        checkers = position.attackersTo(king, -side, occupied);
+        if (checkers != 0) {
+            checkMask = checkers | BETWEEN[king][Long.numberOfTrailingZeros(checkers)];
+        }
+
+        // Enemy sliders that would see the king if only enemy pieces were on the board,
+        // exactly one of our pieces in between means that piece is pinned
+        long queens = position.pieces(-side * QUEEN);
+        long snipers = (rookAttacks(king, enemy) & (position.pieces(-side * ROOK) | queens))
+                | (bishopAttacks(king, enemy) & (position.pieces(-side * BISHOP) | queens));
+
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+
+            long blockers = BETWEEN[king][sniper] & occupied;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0 && (blockers & own) != 0) {
+                pinned |= blockers;
+            }
+        }
+    }
+
+    private void addMoves(MoveList moves, int from, long targets) {
+        int type = Math.abs(position.pieceAt(from));
+
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+
+            int flags = (enemy & (1L << to)) != 0 ? Moves.CAPTURE : 0;
+            if (type == PAWN) {
+                if (to == position.getEnPassantSquare() && ((from ^ to) & 7) != 0) {
+                    flags = Moves.EN_PASSANT;
+                } else if (Math.abs(to - from) == 16) {
+                    flags = Moves.DOUBLE_PUSH;
+                } else if (to < 8 || to >= 56) {
+                    for (int promotion : PROMOTIONS) {
+                        moves.add(Moves.of(from, to, promotion, flags));
+                    }
+                    continue;
+                }
+            } else if (type == KING && Math.abs(to - from) == 2) {
+                flags = Moves.CASTLING;
+            }
+            moves.add(Moves.of(from, to, 0, flags));
+        }
+    }
+
+    private long kingTargets() {
+        long legal = safeKingSquares(KING_ATTACKS[king] & ~own);
+        if (checkers == 0) {
+            legal |= castlingTargets();
+        }
+        return legal;
+    }
+
+    // The squares of the set the king can step to without being attacked there
+    private long safeKingSquares(long targets) {
+        long withoutKing = occupied ^ (1L << king);
+        long legal = 0L;
+
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if (!position.isSquareAttacked(to, -side, withoutKing)) {
+                legal |= 1L << to;
+            }
+        }
+        return legal;
+    }
+
+    private long pieceTargets(int from) {
+        boolean isPawn = Math.abs(position.pieceAt(from)) == PAWN;
+        long targets = isPawn ? pawnTargets(from) : position.attacks(from) & ~own;
+
+        targets &= checkMask;
+        if ((pinned & (1L << from)) != 0) {
+            targets &= LINE[king][from];
+        }
+
+        if (isPawn) {
+            targets |= enPassantTarget(from);
+        }
+        return targets;
+    }
+
+    private long pawnTargets(int from) {
+        long bit = 1L << from;
+        long empty = ~occupied;
+        long targets;
+
+        if (color == WHITE) {
+            long single = (bit << 8) & empty;
+            targets = single | ((single & RANK_3) << 8) & empty;
+        } else {
+            long single = (bit >>> 8) & empty;
+            targets = single | ((single & RANK_6) >>> 8) & empty;
+        }
+        return targets | (PAWN_ATTACKS[color][from] & enemy);
+    }
+
+    // The en passant square sits on the 3rd rank after a white double push and on the 6th after a
+    // black one, so only the other side may capture onto it
+    private long enPassantTarget(int from) {
+        int target = position.getEnPassantSquare();
+        if (target < 0 || (PAWN_ATTACKS[color][from] & (1L << target)) == 0) return 0L;
+        if ((target >>> 3) != (color == WHITE ? 5 : 2)) return 0L;
+        if (king < 0) return 1L << target;
+
+        long victim = 1L << (color == WHITE ? target - 8 : target + 8);
+        long after = (occupied ^ (1L << from) ^ victim) | (1L << target);
+        return (position.attackersTo(king, -side, after) & ~victim) == 0 ? 1L << target : 0L;
+    }
+
+    private long castlingTargets() {
+        int home = color == WHITE ? 4 : 60;
+        if (king != home) return 0L;
+
+        int rights = position.getCastlingRights();
+        int kingside = color == WHITE ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+        int queenside = color == WHITE ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+        int rook = ROOK * side;
+        long targets = 0L;
+
+        if ((rights & kingside) != 0 && position.pieceAt(home + 3) == rook
+                && (occupied & (3L << (home + 1))) == 0
+                && !position.isSquareAttacked(home + 1, -side) && !position.isSquareAttacked(home + 2, -side)) {
+            targets |= 1L << (home + 2);
+        }
+
+        if ((rights & queenside) != 0 && position.pieceAt(home - 4) == rook
+                && (occupied & (7L << (home - 3))) == 0
+                && !position.isSquareAttacked(home - 1, -side) && !position.isSquareAttacked(home - 2, -side)) {
+            targets |= 1L << (home - 2);
+        }
+        return targets;
+    }
+}
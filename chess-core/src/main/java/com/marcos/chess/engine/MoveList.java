@@ -0,0 +1,74 @@
+package com.marcos.chess.engine;
+
+/*
+Fixed size list of packed moves (see Moves) so generating moves never allocates.
+No chess position has more than 218 legal moves, 256 leaves some room.
+
+A list is meant to be reused: keep one per search ply and clear() it before generating,
+the moves of a ply stay valid while the plies below it are being searched.
+ */
+public final class MoveList {
+
+    public static final int CAPACITY = 256;
+
+    private final int[] moves = new int[CAPACITY];
+    private int size = 0;
+
+    // One list per ply, index it with the current depth of the search
+    public static MoveList[] perPly(int plies) {
+        MoveList[] lists = new MoveList[plies];
+        for (int i = 0; i < plies; i++) {
+            lists[i] = new MoveList();
+        }
+        return lists;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+    public void copyFrom(MoveList other) {
+        System.arraycopy(other.moves, 0, moves, 0, other.size);
+        size = other.size;
+    }
+
+    // Drops everything after the first size moves, for filtering a list in place
+    public void truncate(int size) {
+        this.size = size;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Whether a move with the same from, to and promotion is in the list, flags are ignored
+    public boolean contains(int move) {
+        int base = Moves.base(move);
+        for (int i = 0; i < size; i++) {
+            if (Moves.base(moves[i]) == base) return true;
+        }
+        return false;
+    }
+
+    public void swap(int i, int j) {
+        int move = moves[i];
+        moves[i] = moves[j];
+        moves[j] = move;
+    }
+}
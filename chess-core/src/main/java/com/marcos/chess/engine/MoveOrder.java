@@ -0,0 +1,223 @@
+package com.marcos.chess.engine;
+
+import java.util.Arrays;
+
+import static com.marcos.chess.engine.BoardState.*;
+
+/*
+Decides which move the search tries next. Alpha-beta cuts off as soon as one move is good enough,
+so the sooner the best move comes the smaller the tree. The stages, best first:
+    HASH      the move the transposition table remembers (Search tries it before generating)
+    CAPTURE   captures and queen promotions that do not lose material by static exchange (SEE),
+              most valuable victim first, then least valuable attacker
+    KILLER    two quiet moves per ply that caused a cutoff in a sibling position
+    COUNTER   the quiet move that last refuted the opponent's previous move (by piece and square)
+    QUIET     the rest by history: how often the move (per side, from, to) caused cutoffs, weighted
+              by depth, and less for every time it was tried first and did not
+    BAD_CAPTURE  captures SEE says lose material, by MVV-LVA as well
+Under-promotions come last.
+
+Every move gets a score for its stage and they are picked one at a time (a selection sort that stops
+where the search stops), so when the first move cuts off the rest are never sorted.
+
+All tables are plain int arrays owned by one Search, so one per thread. Killers are cleared for every
+search, the history is halved so it still helps but newer results count more.
+ */
+public final class MoveOrder {
+
+    public static final int HASH = 0;
+    public static final int CAPTURE = 1;
+    public static final int KILLER = 2;
+    public static final int COUNTER = 3;
+    public static final int QUIET = 4;
+    public static final int BAD_CAPTURE = 5;
+    public static final String[] STAGE_NAMES = {"hash", "capture", "killer", "counter", "quiet", "bad capture"};
+
+    private static final int CAPTURE_SCORE = 3_000_000;
+    private static final int KILLER_SCORE = 2_000_000;
+    private static final int COUNTER_SCORE = 1_000_000;
+    private static final int BAD_CAPTURE_SCORE = -1_000_000;
+    private static final int UNDER_PROMOTION_SCORE = -2_000_000;
+    // History scores stay within +-MAX_HISTORY, far from the stage scores
+    private static final int MAX_HISTORY = 16384;
+
+    // Attacker order for MVV-LVA, the king takes last since it can only take undefended pieces
+    private static final int[] ATTACKER_ORDER = {0, 1, 4, 2, 3, 5, 6};
+
+    private final StaticExchange exchange = new StaticExchange();
+    private final int[][] scores = new int[Search.MAX_PLY + 1][MoveList.CAPACITY];
+    private final int[][] killers = new int[Search.MAX_PLY + 1][2];
+    private final int[] counterMoves = new int[12 * 64];
+    private final int[] history = new int[2 * 64 * 64];
+
+    private long cutoffs;
+    private long firstMoveCutoffs;
+    private final long[] stageCutoffs = new long[STAGE_NAMES.length];
+
+    void newSearch() {
+        for (int[] ply : killers) {
+            Arrays.fill(ply, Moves.NONE);
+        }
+        for (int i = 0; i < history.length; i++) {
+            history[i] /= 2;
+        }
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+        Arrays.fill(stageCutoffs, 0);
+    }
+
+    // Scores every move of the list for pick(), skip is the hash move which was already searched
+    void score(BoardState position, MoveList moves, int ply, int skip) {
+        int[] plyScores = scores[ply];
+        int side = position.getSideToMove();
+        int counter = counterMove(position);
+        int[] plyKillers = killers[ply];
+
+        int skipBase = Moves.base(skip);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (skip != Moves.NONE && Moves.base(move) == skipBase) {
+                moves.set(i, moves.get(moves.size() - 1));
+                moves.truncate(moves.size() - 1);
+                i--;
+                continue;
+            }
+
+            int base = Moves.base(move);
+            int promotion = Moves.promotion(move);
+            if (promotion != 0 && promotion != QUEEN) {
+                plyScores[i] = UNDER_PROMOTION_SCORE + promotion;
+            } else if (Moves.isCapture(move) || promotion != 0) {
+                plyScores[i] = (losesMaterial(position, move) ? BAD_CAPTURE_SCORE : CAPTURE_SCORE) + mvvLva(position, move);
+            } else if (base == plyKillers[0]) {
+                plyScores[i] = KILLER_SCORE + 1;
+            } else if (base == plyKillers[1]) {
+                plyScores[i] = KILLER_SCORE;
+            } else if (base == counter) {
+                plyScores[i] = COUNTER_SCORE;
+            } else {
+                plyScores[i] = history[historyIndex(side, move)];
+            }
+        }
+    }
+
+    // Brings the best scored move of the ones not tried yet to the index and returns it
+    int pick(MoveList moves, int ply, int index) {
+        int[] plyScores = scores[ply];
+        int best = index;
+        for (int i = index + 1; i < moves.size(); i++) {
+            if (plyScores[i] > plyScores[best]) best = i;
+        }
+        if (best != index) {
+            moves.swap(index, best);
+            int score = plyScores[index];
+            plyScores[index] = plyScores[best];
+            plyScores[best] = score;
+        }
+        return moves.get(index);
+    }
+
+    // Which stage the move picked at that index came from
+    int stage(int ply, int index) {
+        int score = scores[ply][index];
+        if (score >= CAPTURE_SCORE) return CAPTURE;
+        if (score >= KILLER_SCORE) return KILLER;
+        if (score >= COUNTER_SCORE) return COUNTER;
+        if (score >= BAD_CAPTURE_SCORE && score < -MAX_HISTORY) return BAD_CAPTURE;
+        return QUIET;
+    }
+
+    // Taking something worth at least the piece that takes never loses, SEE is only needed otherwise
+    private boolean losesMaterial(BoardState position, int move) {
+        int attacker = Math.abs(position.pieceAt(Moves.from(move)));
+        int victim = Moves.isEnPassant(move) ? PAWN : Math.abs(position.pieceAt(Moves.to(move)));
+        if (attacker != KING && Evaluation.PIECE_VALUES[victim] >= Evaluation.PIECE_VALUES[attacker]) return false;
+        return exchange.evaluate(position, move) < 0;
+    }
+
+    // Most valuable victim first, of equal victims the cheapest attacker first
+    private static int mvvLva(BoardState position, int move) {
+        int attacker = Math.abs(position.pieceAt(Moves.from(move)));
+        int victim = Moves.isEnPassant(move) ? PAWN : Math.abs(position.pieceAt(Moves.to(move)));
+        int value = Evaluation.PIECE_VALUES[victim] + Evaluation.PIECE_VALUES[Moves.promotion(move)];
+        return value * 8 - ATTACKER_ORDER[attacker];
+    }
+
+    // Captures and promotions change the material, the heuristics below are only for the other moves
+    static boolean isQuiet(BoardState position, int move) {
+        if (Moves.promotion(move) != 0 || position.pieceAt(Moves.to(move)) != 0) return false;
+        // A pawn moving to another file without taking a piece on the square is en passant
+        return Math.abs(position.pieceAt(Moves.from(move))) != PAWN || ((Moves.from(move) ^ Moves.to(move)) & 7) == 0;
+    }
+
+    /*
+    A move caused a beta cutoff. Counted for the statistics, and if it was quiet it becomes a killer of
+    the ply and the counter of the previous move, its history goes up and the history of the quiet
+    moves tried before it (moves 0 .. tried - 1 of the list) goes down.
+    Called with the position back as it was before the move.
+     */
+    void cutoff(BoardState position, int move, int stage, int moveNumber, int ply, int depth, MoveList moves, int tried) {
+        cutoffs++;
+        if (moveNumber == 0) firstMoveCutoffs++;
+        stageCutoffs[stage]++;
+
+        if (!isQuiet(position, move)) return;
+
+        int base = Moves.base(move);
+        int[] plyKillers = killers[ply];
+        if (plyKillers[0] != base) {
+            plyKillers[1] = plyKillers[0];
+            plyKillers[0] = base;
+        }
+
+        int previous = position.lastMove();
+        if (previous != Moves.NONE) {
+            counterMoves[counterIndex(position, previous)] = base;
+        }
+
+        int side = position.getSideToMove();
+        int bonus = Math.min(depth * depth, MAX_HISTORY);
+        addHistory(historyIndex(side, move), bonus);
+        for (int i = 0; i < tried; i++) {
+            int other = moves.get(i);
+            if (other != move && isQuiet(position, other)) {
+                addHistory(historyIndex(side, other), -bonus);
+            }
+        }
+    }
+
+    // Moves the value towards the bonus, the closer it already is to the limit the less it moves,
+    // so it never leaves +-MAX_HISTORY
+    private void addHistory(int index, int bonus) {
+        history[index] += bonus - history[index] * Math.abs(bonus) / MAX_HISTORY;
+    }
+
+    private int counterMove(BoardState position) {
+        int previous = position.lastMove();
+        return previous == Moves.NONE ? Moves.NONE : counterMoves[counterIndex(position, previous)];
+    }
+
+    // The piece that made the previous move stands on its destination now
+    private static int counterIndex(BoardState position, int previous) {
+        int to = Moves.to(previous);
+        return pieceIndex(position.pieceAt(to)) * 64 + to;
+    }
+
+    private static int historyIndex(int side, int move) {
+        return (side > 0 ? 0 : 4096) + Moves.from(move) * 64 + Moves.to(move);
+    }
+
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    // Cutoffs caused by the first move tried, over getCutoffs() this is how good the ordering is
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    // Cutoffs per stage, indexed by HASH .. QUIET
+    public long[] getStageCutoffs() {
+        return stageCutoffs.clone();
+    }
+}
@@ -0,0 +1,84 @@
+package com.marcos.chess.engine;
+
+/*
+Moves are passed around as plain ints:
+    bits 0-5   from square
+    bits 6-11  to square
+    bits 12-14 promotion piece (2 = rook ... 5 = queen), 0 when there is none
+    bits 15-18 flags, filled in by the move generator
+
+BoardState.makeMove works the special moves out from the board, so a move built with only
+from/to (like the ones coming from the UI) plays the same as the generated one.
+ */
+public final class Moves {
+
+    public static final int NONE = 0;
+
+    public static final int CAPTURE = 1 << 15;
+    public static final int EN_PASSANT = 1 << 16;
+    public static final int CASTLING = 1 << 17;
+    public static final int DOUBLE_PUSH = 1 << 18;
+
+    private Moves() {
+    }
+
+    public static int of(int from, int to) {
+        return from | (to << 6);
+    }
+
+    public static int of(int from, int to, int promotion) {
+        return from | (to << 6) | (promotion << 12);
+    }
+
+    public static int of(int from, int to, int promotion, int flags) {
+        return from | (to << 6) | (promotion << 12) | flags;
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    public static int promotion(int move) {
+        return (move >>> 12) & 0x7;
+    }
+
+    // Only from, to and promotion, so a generated move compares equal to one built from the UI
+    public static int base(int move) {
+        return move & 0x7FFF;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & (CAPTURE | EN_PASSANT)) != 0;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (move & EN_PASSANT) != 0;
+    }
+
+    public static boolean isCastling(int move) {
+        return (move & CASTLING) != 0;
+    }
+
+    public static boolean isDoublePush(int move) {
+        return (move & DOUBLE_PUSH) != 0;
+    }
+
+    // Long algebraic notation like "e2e4" or "e7e8q", the way engines and perft tools print moves
+    public static String toUci(int move) {
+        StringBuilder sb = new StringBuilder(5);
+        appendSquare(sb, from(move));
+        appendSquare(sb, to(move));
+        if (promotion(move) != 0) {
+            sb.append(" rnbq".charAt(promotion(move) - 1));
+        }
+        return sb.toString();
+    }
+
+    private static void appendSquare(StringBuilder sb, int square) {
+        sb.append((char) ('a' + (square & 7))).append((char) ('1' + (square >>> 3)));
+    }
+}
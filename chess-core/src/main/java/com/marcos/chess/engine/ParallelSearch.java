@@ -0,0 +1,135 @@
+package com.marcos.chess.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+Lazy SMP: several threads search the same root at the same time and only talk through the shared
+TranspositionTable. There is no splitting of the tree, every helper simply runs its own iterative
+deepening (a bit out of step with the others, see Search.search) and whatever it stores in the table
+lets the others cut off or order their moves earlier. The main search runs on the calling thread and
+its result is the one returned, the helpers are stopped as soon as it finishes.
+
+Each thread has its own Search, so its own BoardState, move lists and PV table, and they are kept
+between searches: nothing is allocated per node or per thread once this is built. The helper
+threads are daemons that wait in a fixed pool between searches.
+ */
+public final class ParallelSearch {
+
+    private final Search main;
+    private final Search[] helpers;
+    private final TranspositionTable table;
+    private final ExecutorService pool;
+    private final AtomicBoolean stopSignal = new AtomicBoolean();
+    private final List<Future<?>> running = new ArrayList<>();
+
+    public ParallelSearch(int threads, TranspositionTable table) {
+        int count = Math.max(1, threads);
+        this.table = table;
+        this.main = new Search();
+        this.main.setTable(table);
+        this.main.setStopSignal(stopSignal);
+
+        this.helpers = new Search[count - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new Search();
+            helpers[i].setTable(table);
+            helpers[i].setHelper(i + 1);
+            helpers[i].setStopSignal(stopSignal);
+            helpers[i].setTimeLimit(0);
+        }
+
+        this.pool = helpers.length == 0 ? null : Executors.newFixedThreadPool(helpers.length, runnable -> {
+            Thread thread = new Thread(runnable, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getThreads() {
+        return helpers.length + 1;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    // Limits apply to the main search, the helpers run until it is done
+    public void setTimeLimit(long millis) {
+        main.setTimeLimit(millis);
+    }
+
+    public void setNodeLimit(long nodes) {
+        main.setNodeLimit(nodes);
+    }
+
+    public void setMaxDepth(int depth) {
+        main.setMaxDepth(depth);
+        for (Search helper : helpers) {
+            helper.setMaxDepth(depth);
+        }
+    }
+
+    // Same arguments as Search.search, the position is read once here and not touched afterwards
+    public int search(BoardState root, MoveList rootMoves, long[] history) {
+        return search(Position.of(root), rootMoves, history);
+    }
+
+    // From a copy of the position, so it can run on another thread while the board keeps changing
+    public int search(Position position, MoveList rootMoves, long[] history) {
+        stopSignal.set(false);
+        // Aged once here, before any thread can store, so all of them write the same generation
+        if (table != null) table.newSearch();
+
+        running.clear();
+        for (Search helper : helpers) {
+            running.add(pool.submit(() -> helper.search(position, rootMoves, history)));
+        }
+
+        int best;
+        try {
+            best = main.search(position, rootMoves, history);
+        } finally {
+            // Wait for the helpers, they reuse their stacks in the next search
+            stopSignal.set(true);
+            for (Future<?> future : running) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Search helper failed", e.getCause());
+                }
+            }
+        }
+        return best;
+    }
+
+    // Ends a running search from another thread, it still returns the best move found so far
+    public void stop() {
+        stopSignal.set(true);
+    }
+
+    // The main search, it holds the score, depth and principal variation of the result
+    public Search getMain() {
+        return main;
+    }
+
+    // Nodes searched by all the threads together in the last search
+    public long getNodes() {
+        long nodes = main.getNodes();
+        for (Search helper : helpers) {
+            nodes += helper.getNodes();
+        }
+        return nodes;
+    }
+
+    public void shutdown() {
+        if (pool != null) pool.shutdownNow();
+    }
+}
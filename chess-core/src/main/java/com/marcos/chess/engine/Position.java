@@ -0,0 +1,87 @@
+package com.marcos.chess.engine;
+
+/*
+Compact, immutable copy of a position, small enough to keep millions of them in memory:
+    occupied    one bit per occupied square
+    lowPieces   4 bits per piece (BoardState.pieceIndex) for the first 16 occupied squares, a1 first
+    highPieces  the same for the next 16, a legal position never has more than 32 pieces
+    state       BoardState.stateWord(): bit 0 black to move, bits 1-4 castling rights,
+                bits 5-11 en passant square + 1, bits 12-19 halfmove clock, bits 20-31 fullmove number
+ */
+public record Position(long occupied, long lowPieces, long highPieces, int state) {
+
+    public static Position of(BoardState board) {
+        long occupied = board.occupied();
+        long low = 0L;
+        long high = 0L;
+
+        int index = 0;
+        for (long rest = occupied; rest != 0; rest &= rest - 1, index++) {
+            long nibble = BoardState.pieceIndex(board.pieceAt(Long.numberOfTrailingZeros(rest)));
+            if (index < 16) {
+                low |= nibble << (index * 4);
+            } else {
+                high |= nibble << ((index - 16) * 4);
+            }
+        }
+
+        return new Position(occupied, low, high, board.stateWord());
+    }
+
+    // From a board[row][col] array like Game's, with the state word built by BoardState.packState
+    public static Position of(int[][] board, int state) {
+        BoardState position = new BoardState();
+        position.load(board);
+        position.setStateWord(state);
+        return of(position);
+    }
+
+    public int pieceAt(int square) {
+        if ((occupied & (1L << square)) == 0) return 0;
+
+        int index = Long.bitCount(occupied & ((1L << square) - 1));
+        int nibble = (int) ((index < 16 ? lowPieces >>> (index * 4) : highPieces >>> ((index - 16) * 4)) & 0xF);
+        return nibble < 6 ? nibble + 1 : 5 - nibble;
+    }
+
+    // The pieces as a fresh board[row][col] array, row 0 being black's back rank like in Game
+    public int[][] toBoard() {
+        int[][] board = new int[8][8];
+        for (long rest = occupied; rest != 0; rest &= rest - 1) {
+            int square = Long.numberOfTrailingZeros(rest);
+            board[Bitboards.row(square)][Bitboards.col(square)] = pieceAt(square);
+        }
+        return board;
+    }
+
+    public int sideToMove() {
+        return (state & 1) != 0 ? -1 : 1;
+    }
+
+    public int castlingRights() {
+        return (state >>> 1) & 0xF;
+    }
+
+    public int enPassantSquare() {
+        return ((state >>> 5) & 0x7F) - 1;
+    }
+
+    public int halfmoveClock() {
+        return (state >>> 12) & 0xFF;
+    }
+
+    public int fullmoveNumber() {
+        return state >>> 20;
+    }
+
+    // Replaces everything in the board with this position, the undo stack is not touched
+    public void applyTo(BoardState board) {
+        board.clear();
+        for (long rest = occupied; rest != 0; rest &= rest - 1) {
+            int square = Long.numberOfTrailingZeros(rest);
+            board.set(square, pieceAt(square));
+        }
+        // Pieces first, the en passant key depends on them
+        board.setStateWord(state);
+    }
+}
@@ -0,0 +1,431 @@
+package com.marcos.chess.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+Alpha-beta search in negamax form with iterative deepening.
+
+Every score is from the point of view of the side to move, so a child's score is negated on the way
+up and one routine serves both sides. Depth 1, 2, 3 ... are searched in turn until the time or node
+budget runs out or maxDepth is reached. Each iteration starts with the best move of the one before,
+which is what makes the deeper iterations cheap, and when the budget runs out in the middle of an
+iteration the result of the last finished one is kept.
+
+Moves are played on the BoardState with makeMove/unmakeMove, one MoveList per ply, so the search
+does not allocate while it runs. The principal variation (the line both sides are expected to play)
+is collected in a triangular table: pv[ply] holds the best line found from that ply down.
+
+Where the depth runs out the quiescence search takes over and keeps playing captures and promotions
+until the position is quiet, so a leaf is never scored in the middle of an exchange (the horizon
+effect). It is kept small by
+    stand pat       the side to move may stop capturing, the static score is a lower bound for it
+    delta pruning   a capture that cannot bring the score up to alpha even with a margin is skipped
+    SEE pruning     a capture that loses material in the exchange on its square is skipped, the
+                    same "only capture if favorable" rule IA.evaluateMove uses
+In check there is no standing pat, every evasion is searched and no move means mate. Quiet checks
+are not generated. Its nodes are counted in getNodes() and on their own in getQuiescenceNodes().
+
+Mate scores count the plies to the mate, MATE - n means mate in n plies, so shorter mates win.
+Draws by repetition and by the 50 move rule are scored 0 inside the tree.
+
+With a TranspositionTable set every node looks itself up first. An entry searched at least as deep
+that proves the score is outside the window ends the node right away, otherwise its best move is
+tried first, before the other moves are even generated. The table can be shared with other Search
+instances, whoever owns it calls newSearch() on it before every search. The order of the remaining
+moves is up to MoveOrder.
+
+One instance is one thread, it keeps its own position and lists, only the table is shared.
+ParallelSearch runs several of them on the same root as helpers (see there).
+ */
+public final class Search {
+
+    public static final int MAX_PLY = 128;
+    public static final int MATE = 32000;
+    public static final int INFINITY = 32001;
+    // Anything beyond this is a mate score
+    public static final int MATE_BOUND = MATE - MAX_PLY;
+
+    // Checking the clock is not free, only look every this many nodes
+    private static final int CHECK_INTERVAL = 2048;
+    // What a position can gain beyond the captured piece (positional swing) before delta pruning
+    private static final int DELTA_MARGIN = 200;
+
+    private final BoardState position = new BoardState();
+    private final MoveGenerator generator = new MoveGenerator();
+    private final MoveList[] moveLists = MoveList.perPly(MAX_PLY + 1);
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+    private final MoveOrder order = new MoveOrder();
+    private TranspositionTable table;
+
+    // Keys of the game before the root followed by the keys of the current line, for repetitions
+    private long[] keys = new long[256 + MAX_PLY];
+    private int rootKeyCount;
+
+    private long timeLimit = 1000;
+    private long nodeLimit = Long.MAX_VALUE;
+    private int maxDepth = MAX_PLY - 1;
+
+    // 0 for the main search, helpers of a ParallelSearch are numbered from 1
+    private int helper = 0;
+    private AtomicBoolean stopSignal;
+
+    private long deadline;
+    private long nodes;
+    private long quiescenceNodes;
+    private boolean stopped;
+
+    // Result of the last finished iteration
+    private int bestMove;
+    private int score;
+    private int completedDepth;
+    private int[] principalVariation = new int[0];
+
+    // Milliseconds for one search, 0 or less for no time limit
+    public void setTimeLimit(long millis) {
+        this.timeLimit = millis;
+    }
+
+    // Nodes for one search, 0 or less for no limit
+    public void setNodeLimit(long nodes) {
+        this.nodeLimit = nodes > 0 ? nodes : Long.MAX_VALUE;
+    }
+
+    // null to search without one
+    public void setTable(TranspositionTable table) {
+        this.table = table;
+    }
+
+    void setHelper(int index) {
+        this.helper = index;
+    }
+
+    // Another thread can end the search early by setting it, checked as often as the clock
+    public void setStopSignal(AtomicBoolean stopSignal) {
+        this.stopSignal = stopSignal;
+    }
+
+    public void setMaxDepth(int depth) {
+        this.maxDepth = Math.max(1, Math.min(depth, MAX_PLY - 1));
+    }
+
+    /*
+    Searches the position and returns the best move, Moves.NONE when there is no legal move.
+        rootMoves   the moves to choose from, tried in this order in the first iteration (null for all)
+        history     keys of the positions played before the root, oldest first (may be null)
+    The position passed in is copied once, it is not touched afterwards.
+     */
+    public int search(BoardState root, MoveList rootMoves, long[] history) {
+        return search(Position.of(root), rootMoves, history);
+    }
+
+    public int search(Position root, MoveList rootMoves, long[] history) {
+        root.applyTo(position);
+        startKeys(history);
+
+        MoveList moves = moveLists[0];
+        if (rootMoves != null) {
+            moves.copyFrom(rootMoves);
+        } else {
+            generator.generate(position, moves);
+        }
+
+        bestMove = moves.isEmpty() ? Moves.NONE : moves.get(0);
+        score = 0;
+        completedDepth = 0;
+        principalVariation = new int[0];
+        nodes = 0;
+        quiescenceNodes = 0;
+        stopped = false;
+        deadline = timeLimit > 0 ? System.currentTimeMillis() + timeLimit : Long.MAX_VALUE;
+        if (moves.size() <= 1) return bestMove;
+        order.newSearch();
+
+        // Helpers should not all walk the tree the way the main search does, or they only fill the
+        // table with what it finds anyway: every other one starts a depth ahead, and all of them
+        // try the moves after the first one in their own order
+        if (helper > 0) shuffleRootMoves(moves);
+        for (int depth = 1 + (helper & 1); depth <= maxDepth; depth++) {
+            int value = searchRoot(moves, depth);
+            if (stopped) break;
+
+            score = value;
+            completedDepth = depth;
+            bestMove = pv[0][0];
+            principalVariation = Arrays.copyOf(pv[0], pvLength[0]);
+
+            // A forced mate will not get any shorter by looking deeper
+            if (Math.abs(score) >= MATE_BOUND && MATE - Math.abs(score) <= depth) break;
+        }
+        return bestMove;
+    }
+
+    // Same order for the same helper every time, a few steps of an LCG are enough to mix it
+    private void shuffleRootMoves(MoveList moves) {
+        long seed = helper * 0x9E3779B97F4A7C15L;
+        for (int i = moves.size() - 1; i > 1; i--) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            int j = 1 + (int) ((seed >>> 33) % i);
+            moves.swap(i, j);
+        }
+    }
+
+    private int searchRoot(MoveList moves, int depth) {
+        // The best move so far goes first, it is the one most likely to stay best
+        for (int i = 1; i < moves.size(); i++) {
+            if (moves.get(i) == bestMove) {
+                for (int j = i; j > 0; j--) {
+                    moves.swap(j, j - 1);
+                }
+                break;
+            }
+        }
+
+        int alpha = -INFINITY;
+        pvLength[0] = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            position.makeMove(move);
+            keys[rootKeyCount] = position.hash();
+            int value = -alphaBeta(depth - 1, 1, -INFINITY, -alpha);
+            position.unmakeMove();
+            if (stopped) break;
+
+            if (value > alpha) {
+                alpha = value;
+                updatePv(0, move);
+            }
+        }
+        return alpha;
+    }
+
+    private int alphaBeta(int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        if (isDraw(ply)) return 0;
+        if (depth <= 0 || ply >= MAX_PLY) return quiescence(ply, alpha, beta);
+
+        if (++nodes % CHECK_INTERVAL == 0) checkLimits();
+        if (stopped) return 0;
+
+        long key = position.hash();
+        int hashMove = Moves.NONE;
+        if (table != null) {
+            long entry = table.probe(key);
+            if (entry != 0) {
+                hashMove = TranspositionTable.move(entry);
+                if (TranspositionTable.depth(entry) >= depth) {
+                    int value = TranspositionTable.score(entry, ply);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT
+                            || (bound == TranspositionTable.LOWER && value >= beta)
+                            || (bound == TranspositionTable.UPPER && value <= alpha)) {
+                        return value;
+                    }
+                }
+            }
+        }
+
+        int best = Moves.NONE;
+        int moveNumber = 0;
+
+        // The hash move is checked on its own and tried before any move is generated,
+        // when it cuts off the generator never runs
+        if (hashMove != Moves.NONE && generator.isLegal(position, hashMove)) {
+            int value = searchMove(hashMove, depth, ply, alpha, beta);
+            if (stopped) return 0;
+            if (value > alpha) {
+                if (value >= beta) {
+                    return cutoff(key, hashMove, value, MoveOrder.HASH, 0, ply, depth, null, 0);
+                }
+                alpha = value;
+                best = hashMove;
+                updatePv(ply, hashMove);
+            }
+            moveNumber++;
+        } else {
+            hashMove = Moves.NONE;
+        }
+
+        MoveList moves = moveLists[ply];
+        generator.generate(position, moves);
+        if (moves.isEmpty()) {
+            return isInCheck() ? -MATE + ply : 0;
+        }
+        order.score(position, moves, ply, hashMove);
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = order.pick(moves, ply, i);
+            int value = searchMove(move, depth, ply, alpha, beta);
+            if (stopped) return 0;
+
+            if (value > alpha) {
+                if (value >= beta) {
+                    return cutoff(key, move, value, order.stage(ply, i), moveNumber, ply, depth, moves, i);
+                }
+                alpha = value;
+                best = move;
+                updatePv(ply, move);
+            }
+            moveNumber++;
+        }
+
+        if (table != null) {
+            table.store(key, best, alpha, depth, best != Moves.NONE ? TranspositionTable.EXACT : TranspositionTable.UPPER, ply);
+        }
+        return alpha;
+    }
+
+    private int quiescence(int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        quiescenceNodes++;
+        if (++nodes % CHECK_INTERVAL == 0) checkLimits();
+        if (stopped) return 0;
+
+        boolean inCheck = isInCheck();
+        int standPat = 0;
+        if (!inCheck) {
+            standPat = Evaluation.evaluate(position);
+            if (standPat >= beta || ply >= MAX_PLY) return standPat;
+            if (standPat > alpha) alpha = standPat;
+        } else if (ply >= MAX_PLY) {
+            return Evaluation.evaluate(position);
+        }
+
+        MoveList moves = moveLists[ply];
+        if (inCheck) {
+            generator.generate(position, moves);
+            if (moves.isEmpty()) return -MATE + ply;
+        } else {
+            generator.generateCaptures(position, moves);
+        }
+        order.score(position, moves, ply, Moves.NONE);
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = order.pick(moves, ply, i);
+            int promotion = Moves.promotion(move);
+            if (!inCheck) {
+                if (promotion != 0 && promotion != BoardState.QUEEN) continue;
+                if (promotion == 0) {
+                    int victim = Moves.isEnPassant(move) ? BoardState.PAWN : Math.abs(position.pieceAt(Moves.to(move)));
+                    if (standPat + Evaluation.PIECE_VALUES[victim] + DELTA_MARGIN <= alpha) continue;
+                }
+                // MoveOrder already ran SEE on every capture that could lose
+                if (order.stage(ply, i) == MoveOrder.BAD_CAPTURE) continue;
+            }
+
+            position.makeMove(move);
+            keys[rootKeyCount + ply] = position.hash();
+            int value = -quiescence(ply + 1, -beta, -alpha);
+            position.unmakeMove();
+            if (stopped) return 0;
+
+            if (value > alpha) {
+                if (value >= beta) return value;
+                alpha = value;
+                updatePv(ply, move);
+            }
+        }
+        return alpha;
+    }
+
+    private int searchMove(int move, int depth, int ply, int alpha, int beta) {
+        position.makeMove(move);
+        keys[rootKeyCount + ply] = position.hash();
+        int value = -alphaBeta(depth - 1, ply + 1, -beta, -alpha);
+        position.unmakeMove();
+        return value;
+    }
+
+    // The move was too good, the opponent will not allow this position: remember it and return
+    private int cutoff(long key, int move, int value, int stage, int moveNumber, int ply, int depth, MoveList moves, int tried) {
+        order.cutoff(position, move, stage, moveNumber, ply, depth, moves, tried);
+        if (table != null) {
+            table.store(key, move, value, depth, TranspositionTable.LOWER, ply);
+        }
+        return value;
+    }
+
+    // The move followed by the best line of the ply below it
+    private void updatePv(int ply, int move) {
+        pv[ply][0] = move;
+        System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+        pvLength[ply] = pvLength[ply + 1] + 1;
+    }
+
+    private boolean isInCheck() {
+        int king = position.kingSquare(position.getSideToMove());
+        return king >= 0 && position.isSquareAttacked(king, -position.getSideToMove());
+    }
+
+    // Fifty moves without a capture or pawn move, or a position that was already on the board.
+    // Only positions since the last capture or pawn move can repeat, and only every other one has
+    // the same side to move. One repetition is enough inside the tree, the side that can repeat
+    // could also do it again
+    private boolean isDraw(int ply) {
+        int halfmoves = position.getHalfmoveClock();
+        if (halfmoves >= 100) return true;
+
+        int current = rootKeyCount + ply - 1;
+        long key = keys[current];
+        int oldest = Math.max(0, current - halfmoves);
+        for (int i = current - 2; i >= oldest; i -= 2) {
+            if (keys[i] == key) return true;
+        }
+        return false;
+    }
+
+    private void startKeys(long[] history) {
+        int count = history != null ? history.length : 0;
+        if (keys.length < count + MAX_PLY + 1) {
+            keys = new long[count + MAX_PLY + 1];
+        }
+        if (count > 0) {
+            System.arraycopy(history, 0, keys, 0, count);
+        }
+        // The root itself, unless the history already ends with it
+        if (count == 0 || keys[count - 1] != position.hash()) {
+            keys[count++] = position.hash();
+        }
+        rootKeyCount = count;
+    }
+
+    private void checkLimits() {
+        if (nodes >= nodeLimit || System.currentTimeMillis() >= deadline
+                || (stopSignal != null && stopSignal.get())) {
+            stopped = true;
+        }
+    }
+
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    // Score of the best move in centipawns for the side to move at the root
+    public int getScore() {
+        return score;
+    }
+
+    // Deepest iteration that finished, 0 when not even depth 1 did
+    public int getDepth() {
+        return completedDepth;
+    }
+
+    // Every node, the quiescence ones included
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getQuiescenceNodes() {
+        return quiescenceNodes;
+    }
+
+    public int[] getPrincipalVariation() {
+        return principalVariation.clone();
+    }
+
+    // Cutoff statistics of the last search, see MoveOrder
+    public MoveOrder getMoveOrder() {
+        return order;
+    }
+}
@@ -0,0 +1,118 @@
+package com.marcos.chess.engine;
+
+import static com.marcos.chess.engine.Bitboards.*;
+import static com.marcos.chess.engine.BoardState.*;
+
+/*
+Static exchange evaluation (SEE): what a capture wins or loses once both sides have taken back on
+that square as long as it pays, without searching.
+
+Both sides always recapture with their cheapest piece. Every piece that takes is removed from the
+occupancy and the sliders behind it are looked up again, so a rook behind a rook or a bishop behind
+a pawn joins in (x-rays). gain[d] is what the side making capture d has won if the exchange stops
+there, and going back from the last capture each side picks the better of taking or stopping.
+The king only takes when nothing can take it back, a pawn that takes on the last rank becomes a
+queen. Pins are not looked at.
+
+Only bitboard lookups, no moves are played. Keeps a small buffer, so one instance per thread.
+ */
+public final class StaticExchange {
+
+    // Piece values for exchanges, the king is worth more than everything else together
+    private static final int[] VALUES = {0, 100, 500, 300, 300, 900, 20000};
+    // Cheapest first
+    private static final int[] ATTACKER_ORDER = {PAWN, KNIGHT, BISHOP, ROOK, QUEEN, KING};
+
+    private final int[] gain = new int[32];
+
+    // Material the side playing the move ends up with, in centipawns (0 for a quiet move nobody takes)
+    public int evaluate(BoardState position, int move) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int piece = position.pieceAt(from);
+        int side = Integer.signum(piece);
+        int promotion = Moves.promotion(move);
+
+        long occupied = position.occupied() ^ (1L << from);
+        int captured = Math.abs(position.pieceAt(to));
+        if (Math.abs(piece) == PAWN && captured == 0 && ((from ^ to) & 7) != 0) {
+            // En passant, the pawn taken is not on the target square
+            captured = PAWN;
+            occupied ^= 1L << (side > 0 ? to - 8 : to + 8);
+        }
+
+        gain[0] = VALUES[captured];
+        int onSquare = Math.abs(piece);
+        if (promotion != 0) {
+            gain[0] += VALUES[promotion] - VALUES[PAWN];
+            onSquare = promotion;
+        }
+        return exchange(position, to, occupied, onSquare, -side);
+    }
+
+    // What the side can win by starting an exchange on the square with its cheapest attacker,
+    // 0 when it has none or every capture loses. Tells whether the piece standing there hangs
+    public int captureGain(BoardState position, int square, int bySign) {
+        int target = position.pieceAt(square);
+        if (target == 0 || Integer.signum(target) == bySign) return 0;
+
+        long attackers = position.attackersTo(square, bySign, position.occupied());
+        if (attackers == 0) return 0;
+        int from = cheapest(position, attackers, bySign);
+        return Math.max(0, evaluate(position, Moves.of(from, square)));
+    }
+
+    // gain[0] is set, the first capture is made and it is the other side's turn to take back
+    private int exchange(BoardState position, int square, long occupied, int onSquare, int side) {
+        boolean lastRank = square < 8 || square >= 56;
+        long queens = position.pieces(QUEEN) | position.pieces(-QUEEN);
+        long diagonal = position.pieces(BISHOP) | position.pieces(-BISHOP) | queens;
+        long straight = position.pieces(ROOK) | position.pieces(-ROOK) | queens;
+        long attackers = (position.attackersTo(square, 1, occupied) | position.attackersTo(square, -1, occupied)) & occupied;
+
+        int depth = 0;
+        while (depth < gain.length - 1) {
+            long own = attackers & position.occupancy(side) & occupied;
+            if (own == 0) break;
+
+            int from = cheapest(position, own, side);
+            int type = Math.abs(position.pieceAt(from));
+            occupied ^= 1L << from;
+
+            // The king cannot take into a square the other side still covers
+            if (type == KING && (attackers & position.occupancy(-side) & occupied) != 0) break;
+
+            depth++;
+            gain[depth] = VALUES[onSquare] - gain[depth - 1];
+
+            // Whatever stood behind the piece that just took can now see the square
+            if (type == PAWN || type == BISHOP || type == QUEEN) {
+                attackers |= bishopAttacks(square, occupied) & diagonal;
+            }
+            if (type == ROOK || type == QUEEN) {
+                attackers |= rookAttacks(square, occupied) & straight;
+            }
+            attackers &= occupied;
+            onSquare = type;
+            if (type == PAWN && lastRank) {
+                gain[depth] += VALUES[QUEEN] - VALUES[PAWN];
+                onSquare = QUEEN;
+            }
+            side = -side;
+        }
+
+        while (depth > 0) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+            depth--;
+        }
+        return gain[0];
+    }
+
+    private static int cheapest(BoardState position, long attackers, int side) {
+        for (int type : ATTACKER_ORDER) {
+            long pieces = attackers & position.pieces(type * side);
+            if (pieces != 0) return Long.numberOfTrailingZeros(pieces);
+        }
+        return -1;
+    }
+}
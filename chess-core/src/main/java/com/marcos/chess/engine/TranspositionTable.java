@@ -0,0 +1,144 @@
+package com.marcos.chess.engine;
+
+import java.util.Arrays;
+
+/*
+Remembers what the search found out about positions, keyed by Zobrist hash, so a position reached
+again through another move order is not searched twice. It is sized in megabytes when it is created
+and never grows or allocates afterwards.
+
+It is a plain long[] with no object per entry, so even a table of a few gigabytes is a single array
+the garbage collector does not have to walk. An entry is two longs, the key xored with the data and
+the data itself:
+    bits  0-15  best move (Moves.base, the flags are worked out again from the move list)
+    bits 16-31  score, mate scores relative to the entry's own position (see store)
+    bits 32-39  depth it was searched to
+    bits 40-41  bound: UPPER (score <= it), LOWER (score >= it) or EXACT, 0 for an empty slot
+    bits 42-49  generation (which search wrote it)
+Threads read and write it without locks, the same way as PerftTable: if two writes to a slot get
+mixed up, key ^ data no longer gives back the key and the probe just misses.
+
+Entries come in buckets of two. The first slot keeps the deepest result and is only replaced by
+something at least as deep or by anything once it is left over from an older search, the second
+slot always takes what the first one refused, so recent positions are never lost either.
+ */
+public final class TranspositionTable {
+
+    public static final int UPPER = 1;
+    public static final int LOWER = 2;
+    public static final int EXACT = 3;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_LONGS = 4;
+
+    private final long[] entries;
+    private final int mask;
+    private int generation = 0;
+
+    public TranspositionTable(int megabytes) {
+        // Round down to a power of two number of buckets
+        long buckets = Long.highestOneBit(Math.max(megabytes, 1) * 1024L * 1024L / (ENTRY_BYTES * 2));
+        buckets = Math.min(buckets, 1 << 28);
+        this.entries = new long[(int) buckets * BUCKET_LONGS];
+        this.mask = (int) buckets - 1;
+    }
+
+    public void clear() {
+        Arrays.fill(entries, 0L);
+        generation = 0;
+    }
+
+    // Called once at the start of every search so older entries can be told apart and replaced
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    // The data of the entry for this key, 0 when there is none. Read it with the static methods below
+    public long probe(long key) {
+        int index = ((int) key & mask) * BUCKET_LONGS;
+        for (int slot = index; slot < index + BUCKET_LONGS; slot += 2) {
+            long data = entries[slot + 1];
+            if ((entries[slot] ^ data) == key && bound(data) != 0) {
+                return data;
+            }
+        }
+        return 0L;
+    }
+
+    // Mate scores are stored as distance from this position instead of from the root, the same
+    // mate can be found at any ply. ply is how deep the position is in the current search
+    public void store(long key, int move, int score, int depth, int bound, int ply) {
+        if (score >= Search.MATE_BOUND) {
+            score += ply;
+        } else if (score <= -Search.MATE_BOUND) {
+            score -= ply;
+        }
+
+        int index = ((int) key & mask) * BUCKET_LONGS;
+        long deepData = entries[index + 1];
+        boolean sameKey = (entries[index] ^ deepData) == key;
+
+        // Keep the move of the old entry when the new result has none (a fail low)
+        int slot = index;
+        if (!sameKey && bound(deepData) != 0 && generation(deepData) == generation && depth < depth(deepData)) {
+            slot = index + 2;
+            long data = entries[slot + 1];
+            sameKey = (entries[slot] ^ data) == key;
+            deepData = data;
+        }
+        if (move == Moves.NONE && sameKey) {
+            move = move(deepData);
+        }
+
+        long data = (Moves.base(move) & 0xFFFFL)
+                | (score & 0xFFFFL) << 16
+                | (long) Math.max(0, Math.min(depth, 0xFF)) << 32
+                | (long) bound << 40
+                | (long) generation << 42;
+        entries[slot] = key ^ data;
+        entries[slot + 1] = data;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    // The stored score seen from a position at this ply of the current search
+    public static int score(long data, int ply) {
+        int score = (short) (data >>> 16);
+        if (score >= Search.MATE_BOUND) {
+            return score - ply;
+        }
+        if (score <= -Search.MATE_BOUND) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 40) & 3;
+    }
+
+    private static int generation(long data) {
+        return (int) (data >>> 42) & 0xFF;
+    }
+
+    // How full the table is in permille, from a sample of the first thousand slots
+    public int hashfull() {
+        int used = 0;
+        int slots = Math.min(1000, entries.length / 2);
+        for (int i = 0; i < slots; i++) {
+            long data = entries[i * 2 + 1];
+            if (bound(data) != 0 && generation(data) == generation) used++;
+        }
+        return slots == 0 ? 0 : used * 1000 / slots;
+    }
+
+    public int megabytes() {
+        return (int) ((long) entries.length * Long.BYTES / (1024 * 1024));
+    }
+}
@@ -0,0 +1,16 @@
+package com.marcos.chess.networking;
+
+import java.io.Serializable;
+
+// What goes over the socket for every move, shared by both ends of a multiplayer game
+public class Move implements Serializable {
+    private static final long serialVersionUID = 1L;
+    public final int fromX, fromY, toX, toY;
+
+    public Move(int fromX, int fromY, int toX, int toY) {
+        this.fromX = fromX;
+        this.fromY = fromY;
+        this.toX = toX;
+        this.toY = toY;
+    }
+}
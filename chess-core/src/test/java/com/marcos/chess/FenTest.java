@@ -0,0 +1,91 @@
+package com.marcos.chess;
+
+import com.marcos.chess.engine.MoveList;
+import com.marcos.chess.engine.Position;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FenTest {
+
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -";
+
+    // The suite positions and every position one move after them, which adds en passant squares
+    // and positions with black to move
+    @Test
+    void writeThenParseGivesTheSamePosition() {
+        for (String fen : PerftSuite.fens()) {
+            Game game = Fen.load(fen);
+            checkRoundTrip(game.toPosition());
+
+            MoveList moves = new MoveList();
+            game.generateLegalMoves(game.getCurrentPlayer(), moves);
+            for (int i = 0; i < moves.size(); i++) {
+                game.makeMove(moves.get(i));
+                checkRoundTrip(game.toPosition());
+                game.unmakeMove();
+            }
+        }
+    }
+
+    @Test
+    void writesTheStartPosition() {
+        assertEquals(Fen.START_POSITION, Fen.write(Fen.parse(Fen.START_POSITION)));
+        assertEquals(Fen.START_POSITION, Fen.write(new Game(8)));
+    }
+
+    @Test
+    void clocksAreOptional() {
+        Position position = Fen.parse(KIWIPETE);
+        assertEquals(KIWIPETE + " 0 1", Fen.write(position));
+        assertEquals(position, Fen.parse(KIWIPETE + " 0 1"));
+        assertEquals(KIWIPETE + " 7 31", Fen.write(Fen.parse(KIWIPETE + " 7 31")));
+        assertEquals(KIWIPETE + " 7 1", Fen.write(Fen.parse(KIWIPETE + " 7")));
+    }
+
+    @Test
+    void ignoresEpdOperations() {
+        Position position = Fen.parse(KIWIPETE);
+        assertEquals(position, Fen.parse(KIWIPETE + " ;D1 48 ;D2 2039"));
+        assertEquals(position, Fen.parse(KIWIPETE + " bm e2a6; id \"kiwipete\";"));
+        assertEquals(Fen.parse(KIWIPETE + " 3 9"), Fen.parse(KIWIPETE + " 3 9 ;D1 48"));
+    }
+
+    // PositionLoader hands over the middle of its buffer, nothing outside start..end may be read
+    @Test
+    void parsesASliceOfABuffer() {
+        byte[] buf = ("xx " + Fen.START_POSITION + " yy").getBytes(StandardCharsets.US_ASCII);
+        int start = 3;
+        int end = start + Fen.START_POSITION.length();
+        assertEquals(Fen.parse(Fen.START_POSITION), Fen.parse(buf, start, end));
+    }
+
+    @Test
+    void rejectsBadInput() {
+        String[] bad = {
+                "",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/7/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/ppppxppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/pppppppp/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQxq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e9 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq"
+        };
+        for (String fen : bad) {
+            assertThrows(IllegalArgumentException.class, () -> Fen.parse(fen), fen);
+        }
+    }
+
+    private static void checkRoundTrip(Position position) {
+        String fen = Fen.write(position);
+        assertEquals(position, Fen.parse(fen), fen);
+        assertTrue(fen.equals(Fen.write(Fen.parse(fen))), fen);
+    }
+}
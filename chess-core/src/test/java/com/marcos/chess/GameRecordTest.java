@@ -0,0 +1,127 @@
+package com.marcos.chess;
+
+import com.marcos.chess.engine.Moves;
+import com.marcos.chess.engine.MoveList;
+import com.marcos.chess.engine.Position;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameRecordTest {
+
+    private static final String[] STARTS = {
+            Fen.START_POSITION,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"
+    };
+    private static final int GAMES = 40;
+    // Several checkpoints per game
+    private static final int PLIES = 5 * GameRecord.CHECKPOINT_INTERVAL + 3;
+
+    // What has to come back exactly at a ply: pieces, side to move, castling, en passant, clocks and key
+    private record Snapshot(Position position, long hash, int[][] board) {
+    }
+
+    @Test
+    void undoRedoAndSeekGiveBackTheSamePositions() {
+        Random random = new Random(19);
+        boolean castled = false;
+        boolean tookEnPassant = false;
+        boolean promoted = false;
+
+        for (int n = 0; n < GAMES; n++) {
+            Game game = Fen.load(STARTS[n % STARTS.length]);
+            List<Snapshot> plies = new ArrayList<>();
+            plies.add(snapshot(game));
+
+            MoveList moves = new MoveList();
+            for (int ply = 0; ply < PLIES; ply++) {
+                game.generateLegalMoves(game.getCurrentPlayer(), moves);
+                if (moves.isEmpty()) break;
+                int move = pick(moves, random);
+                castled |= Moves.isCastling(move);
+                tookEnPassant |= Moves.isEnPassant(move);
+                promoted |= Moves.promotion(move) != 0;
+                game.playMove(move);
+                plies.add(snapshot(game));
+            }
+            int last = plies.size() - 1;
+            assertEquals(last, game.getRecordedPlies());
+
+            // All the way back one move at a time, then all the way forward
+            while (game.undo()) {
+                check(plies.get(game.getPly()), game);
+            }
+            assertEquals(0, game.getPly());
+            assertFalse(game.canUndo());
+            while (game.redo()) {
+                check(plies.get(game.getPly()), game);
+            }
+            assertEquals(last, game.getPly());
+            assertFalse(game.canRedo());
+
+            // Jumps in both directions, near and far from the checkpoints
+            for (int i = 0; i < 30; i++) {
+                int target = random.nextInt(last + 1);
+                game.seek(target);
+                assertEquals(target, game.getPly());
+                check(plies.get(target), game);
+            }
+            game.seek(last);
+            check(plies.get(last), game);
+            game.seek(0);
+            check(plies.get(0), game);
+        }
+
+        assertTrue(castled && tookEnPassant && promoted, "the games should castle, take en passant and promote");
+    }
+
+    @Test
+    void newMoveAfterUndoDropsTheRedoMoves() {
+        Game game = Fen.load(Fen.START_POSITION);
+        game.playMove(Moves.of(12, 28));
+        game.playMove(Moves.of(52, 36));
+        game.undo();
+        assertTrue(game.canRedo());
+
+        game.playMove(Moves.of(51, 35));
+        assertFalse(game.canRedo());
+        assertEquals(2, game.getRecordedPlies());
+        assertEquals("rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2", game.toFen());
+    }
+
+    // Uniform random play hardly ever takes en passant, so castling, en passant and promotions
+    // are played whenever the position offers one
+    private static int pick(MoveList moves, Random random) {
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (Moves.isCastling(move) || Moves.isEnPassant(move) || Moves.promotion(move) != 0) return move;
+        }
+        return moves.get(random.nextInt(moves.size()));
+    }
+
+    private static Snapshot snapshot(Game game) {
+        int[][] board = game.getBoard();
+        int[][] copy = new int[board.length][];
+        for (int i = 0; i < board.length; i++) {
+            copy[i] = board[i].clone();
+        }
+        return new Snapshot(game.toPosition(), game.hash(), copy);
+    }
+
+    private static void check(Snapshot expected, Game game) {
+        int ply = game.getPly();
+        assertEquals(Fen.write(expected.position()), game.toFen(), () -> "position at ply " + ply);
+        assertEquals(expected.position(), game.toPosition(), () -> "position at ply " + ply);
+        assertEquals(expected.hash(), game.hash(), () -> "key at ply " + ply);
+        assertTrue(Arrays.deepEquals(expected.board(), game.getBoard()), () -> "board array at ply " + ply);
+    }
+}
@@ -0,0 +1,77 @@
+package com.marcos.chess;
+
+import com.marcos.chess.engine.BoardState;
+import com.marcos.chess.engine.MoveGenerator;
+import com.marcos.chess.engine.MoveList;
+import com.marcos.chess.engine.Moves;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameTest {
+
+    // No promotion and the four pieces a pawn can become
+    private static final int[] PROMOTIONS = {0, BoardState.ROOK, BoardState.KNIGHT, BoardState.BISHOP, BoardState.QUEEN};
+
+    // Moves coming from the network are checked with isLegal before anything touches the board array
+    @Test
+    void rejectsCoordinatesOffTheBoard() {
+        Game game = Fen.load("4k3/8/8/8/8/8/8/4K3 w - - 0 1");
+
+        assertFalse(game.isLegal(-1, 4, 7, 4));
+        assertFalse(game.isLegal(7, 4, 8, 4));
+        assertFalse(game.isLegal(7, -1, 7, 3));
+        assertFalse(game.isLegal(7, 4, 6, 8));
+        assertFalse(game.isLegal(Integer.MIN_VALUE, 0, 0, Integer.MAX_VALUE));
+        assertTrue(game.isLegal(7, 4, 6, 4));
+    }
+
+    // isLegal is the only check on network and drag and drop moves, so every from/to/promotion
+    // combination has to agree with full generation, in the suite positions and one move after them
+    @Test
+    void isLegalAgreesWithGeneration() {
+        for (String fen : PerftSuite.fens()) {
+            Game game = Fen.load(fen);
+            checkEveryMove(game);
+
+            MoveList children = new MoveList();
+            game.generateLegalMoves(game.getCurrentPlayer(), children);
+            for (int i = 0; i < children.size(); i++) {
+                game.makeMove(children.get(i));
+                checkEveryMove(game);
+                game.unmakeMove();
+            }
+        }
+    }
+
+    private static void checkEveryMove(Game game) {
+        MoveList legal = new MoveList();
+        new MoveGenerator().generate(game.getState(), legal);
+
+        MoveGenerator generator = new MoveGenerator();
+        // A fresh copy answers from the generator, the other game from its cached legal moves
+        Game uncached = game.copy();
+        game.getLegalMoves();
+
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                for (int promotion : PROMOTIONS) {
+                    int move = Moves.of(from, to, promotion);
+                    // A pawn reaching the last rank may come without its piece, the UI asks for it later
+                    boolean expected = legal.contains(move)
+                            || (promotion == 0 && legal.contains(Moves.of(from, to, BoardState.QUEEN)));
+
+                    assertEquals(expected, generator.isLegal(game.getState(), move), () -> "MoveGenerator " + describe(game, move));
+                    assertEquals(expected, game.isLegal(move), () -> "Game " + describe(game, move));
+                    assertEquals(expected, uncached.isLegal(move), () -> "Game without cache " + describe(game, move));
+                }
+            }
+        }
+    }
+
+    private static String describe(Game game, int move) {
+        return Moves.toUci(move) + " in " + game.toFen();
+    }
+}
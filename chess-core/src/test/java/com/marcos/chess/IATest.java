@@ -0,0 +1,28 @@
+package com.marcos.chess;
+
+import com.marcos.chess.engine.Bitboards;
+import com.marcos.chess.engine.Moves;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IATest {
+
+    private final IA ia = new IA(1, 1);
+
+    @Test
+    void defendingAHangingPieceCountsMore() {
+        // The knight on d4 is attacked by a pawn and nothing takes back
+        assertEquals(90, defense("4k3/8/8/4p3/3N4/8/8/4K3 w - - 0 1", 7, 4, 6, 3));
+        // Here a bishop attacks it and the pawn on c3 covers it, taking only trades the bishop
+        assertEquals(30, defense("4k3/6b1/8/8/3N4/2P5/8/4K3 w - - 0 1", 7, 4, 6, 3));
+        // Nothing of white is attacked
+        assertEquals(0, defense("4k3/8/8/8/3N4/8/8/4K3 w - - 0 1", 7, 4, 6, 3));
+    }
+
+    private int defense(String fen, int fromX, int fromY, int toX, int toY) {
+        Game game = Fen.load(fen);
+        int move = Moves.of(Bitboards.square(fromX, fromY), Bitboards.square(toX, toY));
+        return ia.evaluateDefense(game, game.getBoard(), move, game.getBoard()[fromX][fromY]);
+    }
+}
@@ -0,0 +1,57 @@
+package com.marcos.chess;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// The positions of perft_suite.epd with their known counts, for the tests that need a varied set of positions
+final class PerftSuite {
+
+    // counts[depth] is the node count at that depth, 0 where the suite does not give one
+    record Entry(String fen, long[] counts) {
+    }
+
+    private PerftSuite() {
+    }
+
+    static List<Entry> entries() {
+        InputStream in = PerftSuite.class.getResourceAsStream("/perft_suite.epd");
+        if (in == null) {
+            throw new IllegalStateException("Missing /perft_suite.epd");
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+
+                String[] parts = line.split(";");
+                long[] counts = new long[parts.length];
+                for (int i = 1; i < parts.length; i++) {
+                    String[] expected = parts[i].trim().split("\\s+");
+                    int depth = Integer.parseInt(expected[0].substring(1));
+                    if (depth >= counts.length) {
+                        counts = Arrays.copyOf(counts, depth + 1);
+                    }
+                    counts[depth] = Long.parseLong(expected[1]);
+                }
+                entries.add(new Entry(parts[0].trim(), counts));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return entries;
+    }
+
+    static List<String> fens() {
+        return entries().stream().map(Entry::fen).toList();
+    }
+}
@@ -0,0 +1,47 @@
+package com.marcos.chess;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// perft_suite.epd as part of the build: a wrong count means the move generator or make/unmake broke
+class PerftTest {
+
+    private static final int DEPTH = 3;
+    // The start position and Kiwipete are cheap enough to go one deeper
+    private static final int DEEP_DEPTH = 4;
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    @Test
+    void suiteCountsMatch() {
+        List<PerftSuite.Entry> entries = PerftSuite.entries();
+        assertTrue(!entries.isEmpty(), "perft suite is empty");
+
+        for (PerftSuite.Entry entry : entries) {
+            String fen = entry.fen();
+            int maxDepth = fen.equals(Fen.START_POSITION) || fen.equals(KIWIPETE) ? DEEP_DEPTH : DEPTH;
+            for (int depth = 1; depth <= maxDepth && depth < entry.counts().length; depth++) {
+                long expected = entry.counts()[depth];
+                if (expected == 0) continue;
+
+                Game game = Fen.load(fen);
+                long nodes = new Perft(game, depth).perft(depth);
+                int d = depth;
+                assertEquals(expected, nodes, () -> fen + " depth " + d);
+                assertEquals(fen, game.toFen(), "perft has to leave the position as it found it");
+            }
+        }
+    }
+
+    @Test
+    void sharedTableGivesTheSameCounts() {
+        PerftTable table = new PerftTable(16);
+        Game game = Fen.load(KIWIPETE);
+        assertEquals(97862L, Perft.count(game, 3, null, table));
+        // The second run is answered from the table
+        assertEquals(97862L, Perft.count(game, 3, null, table));
+    }
+}
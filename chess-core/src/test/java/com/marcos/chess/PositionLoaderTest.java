@@ -0,0 +1,122 @@
+package com.marcos.chess;
+
+import com.marcos.chess.engine.Position;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PositionLoaderTest {
+
+    // Size of the chunks PositionLoader reads
+    private static final int CHUNK = 1 << 20;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsThePerftSuite() throws IOException, URISyntaxException {
+        Path suite = Path.of(PositionLoaderTest.class.getResource("/perft_suite.epd").toURI());
+        List<Position> expected = PerftSuite.fens().stream().map(Fen::parse).toList();
+        assertEquals(expected, PositionLoader.readAll(suite));
+    }
+
+    @Test
+    void skipsCommentsAndEmptyLines() throws IOException {
+        Path file = write("""
+                # a comment
+                %s
+
+                   \t
+                  # an indented comment
+                %s
+                """.formatted(Fen.START_POSITION, Fen.START_POSITION));
+        assertEquals(List.of(Fen.parse(Fen.START_POSITION), Fen.parse(Fen.START_POSITION)), PositionLoader.readAll(file));
+    }
+
+    @Test
+    void ignoresEpdOperations() throws IOException {
+        String fen = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w -";
+        Path file = write(fen + " - ;D1 14 ;D2 191\n" + fen + " - bm b4f4; id \"rook endgame\";\n");
+        Position expected = Fen.parse(fen + " - 0 1");
+        assertEquals(List.of(expected, expected), PositionLoader.readAll(file));
+    }
+
+    @Test
+    void handlesCrlfAndNoFinalLineBreak() throws IOException {
+        List<String> fens = PerftSuite.fens();
+        // An empty line is just "\r" before the line break is taken off
+        String text = "# suite\r\n\r\n" + String.join("\r\n", fens);
+        List<Position> expected = fens.stream().map(Fen::parse).toList();
+
+        assertEquals(expected, PositionLoader.readAll(write(text)));
+        assertEquals(expected, PositionLoader.readAll(write(text + "\r\n")));
+        assertEquals(expected, PositionLoader.readAll(write(String.join("\n", fens))));
+    }
+
+    @Test
+    void emptyFile() throws IOException {
+        assertEquals(0, PositionLoader.read(write(""), position -> { }));
+        assertEquals(0, PositionLoader.read(write("\n\n# nothing\n"), position -> { }));
+    }
+
+    // Several chunks worth of lines, some of them cut by the end of a chunk, in the order they were written
+    @Test
+    void linesAcrossChunks() throws IOException {
+        List<String> fens = PerftSuite.fens();
+        StringBuilder text = new StringBuilder();
+        List<Position> expected = new ArrayList<>();
+        boolean cut = false;
+        for (int i = 0; text.length() < 3 * CHUNK; i++) {
+            String fen = fens.get(i % fens.size());
+            // Different clocks so every line is a different position and the order can be checked
+            String line = fen.split(" ").length > 4 ? fen : fen + " " + (i % 100) + " " + (i + 1);
+            int start = text.length();
+            text.append(line).append(i % 3 == 0 ? "\r\n" : "\n");
+            cut |= start < CHUNK && text.length() > CHUNK;
+            expected.add(Fen.parse(line));
+        }
+        assertTrue(cut, "a line should cross the end of the first chunk");
+
+        List<Position> positions = new ArrayList<>();
+        long count = PositionLoader.read(write(text.toString()), positions::add);
+        assertEquals(expected.size(), count);
+        assertEquals(expected, positions);
+    }
+
+    // A line that does not fit in one chunk makes the buffer grow
+    @Test
+    void lineLongerThanAChunk() throws IOException {
+        String operations = " ;c0 \"" + "x".repeat(CHUNK + CHUNK / 2) + "\"";
+        Path file = write(Fen.START_POSITION + operations + "\n" + Fen.START_POSITION + "\n");
+        Position start = Fen.parse(Fen.START_POSITION);
+        assertEquals(List.of(start, start), PositionLoader.readAll(file));
+    }
+
+    @Test
+    void errorsGiveTheLineNumber() throws IOException {
+        Path file = write("# header\n" + Fen.START_POSITION + "\n\nrnbqkbnr/pppppppp/8 w KQkq - 0 1\n");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> PositionLoader.readAll(file));
+        assertTrue(e.getMessage().startsWith("Line 4: "), e.getMessage());
+
+        Path last = write(Fen.START_POSITION + "\nnot a fen");
+        e = assertThrows(IllegalArgumentException.class, () -> PositionLoader.readAll(last));
+        assertTrue(e.getMessage().startsWith("Line 2: "), e.getMessage());
+    }
+
+    private Path write(String text) throws IOException {
+        Path file = Files.createTempFile(dir, "positions", ".epd");
+        Files.writeString(file, text, StandardCharsets.US_ASCII);
+        return file;
+    }
+}
@@ -0,0 +1,156 @@
+package com.marcos.chess.engine;
+
+import com.marcos.chess.Fen;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class BoardStateTest {
+
+    // Castling, en passant and promotions all come up within a few moves from these
+    private static final String[] STARTS = {
+            Fen.START_POSITION,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"
+    };
+    private static final int GAMES = 200;
+    private static final int PLIES = 150;
+
+    private final MoveGenerator generator = new MoveGenerator();
+    private final MoveList moves = new MoveList();
+
+    // Once built, set() keeps the attack map up to date through every make and unmake,
+    // it has to match one built from scratch on the same pieces at every step
+    @Test
+    void attackMapFollowsMakeAndUnmake() {
+        Random random = new Random(11);
+        for (int game = 0; game < GAMES; game++) {
+            BoardState state = load(STARTS[game % STARTS.length]);
+            state.attackedSquares(1);
+            int depth = 0;
+            for (int ply = 0; ply < PLIES; ply++) {
+                generator.generate(state, moves);
+                if (depth > 0 && (moves.isEmpty() || random.nextInt(4) == 0)) {
+                    state.unmakeMove();
+                    depth--;
+                } else if (!moves.isEmpty()) {
+                    state.makeMove(moves.get(random.nextInt(moves.size())));
+                    depth++;
+                } else {
+                    break;
+                }
+                checkAttackMap(state);
+            }
+        }
+    }
+
+    // The Zobrist key is updated piece by piece, it has to equal the key worked out from scratch
+    // and unmakeMove/takeBack have to give the old key back
+    @Test
+    void hashFollowsMakeAndUnmake() {
+        Random random = new Random(6);
+        for (int game = 0; game < GAMES; game++) {
+            BoardState state = load(STARTS[game % STARTS.length]);
+            long[] keys = new long[PLIES + 1];
+            int depth = 0;
+            keys[0] = state.hash();
+            for (int ply = 0; ply < PLIES; ply++) {
+                generator.generate(state, moves);
+                if (depth > 0 && (moves.isEmpty() || random.nextInt(4) == 0)) {
+                    state.unmakeMove();
+                    depth--;
+                    assertEquals(keys[depth], state.hash(), () -> "key after unmake in " + describe(state));
+                } else if (!moves.isEmpty()) {
+                    int move = moves.get(random.nextInt(moves.size()));
+                    checkTakeBack(state, move);
+                    state.makeMove(move);
+                    keys[++depth] = state.hash();
+                } else {
+                    break;
+                }
+                assertEquals(freshHash(state), state.hash(), () -> "key of " + describe(state));
+            }
+        }
+    }
+
+    @Test
+    void sameKeyForTheSamePosition() {
+        BoardState state = load(Fen.START_POSITION);
+        long start = state.hash();
+        for (String uci : new String[]{"g1f3", "g8f6", "f3g1", "f6g8"}) {
+            state.makeMove(find(state, uci));
+        }
+        // Only the clocks differ, they are not part of the key
+        assertEquals(start, state.hash());
+
+        // Nothing can take en passant after 1.e4, so the key is the one without the square
+        state = load(Fen.START_POSITION);
+        state.makeMove(find(state, "e2e4"));
+        assertEquals(load("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1").hash(), state.hash());
+        // Here the d4 pawn could, so the square counts
+        BoardState withPawn = load("rnbqkbnr/ppp1pppp/8/8/3p4/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        withPawn.makeMove(find(withPawn, "e2e4"));
+        long withSquare = withPawn.hash();
+        assertEquals(load("rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1").hash(), withSquare);
+        assertNotEquals(load("rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1").hash(), withSquare);
+    }
+
+    // playMove and takeBack without the undo stack, the position has to come back exactly
+    private static void checkTakeBack(BoardState state, int move) {
+        long key = state.hash();
+        int word = state.stateWord();
+        Position before = Position.of(state);
+        int captured = state.playMove(move);
+        assertEquals(freshHash(state), state.hash(), () -> "key after playMove in " + describe(state));
+        state.takeBack(move, captured, word);
+        assertEquals(key, state.hash(), () -> "key after takeBack in " + describe(state));
+        assertEquals(before, Position.of(state));
+    }
+
+    // Also through a board loaded from scratch, that one is built by the setters
+    private static long freshHash(BoardState state) {
+        BoardState fresh = new BoardState();
+        Position.of(state).applyTo(fresh);
+        assertEquals(fresh.computeHash(), fresh.hash(), () -> "key of the loaded " + describe(state));
+        return state.computeHash();
+    }
+
+    private int find(BoardState state, String uci) {
+        generator.generate(state, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            if (Moves.toUci(moves.get(i)).equals(uci)) return moves.get(i);
+        }
+        throw new AssertionError(uci + " is not legal in " + describe(state));
+    }
+
+    private static void checkAttackMap(BoardState state) {
+        BoardState fresh = new BoardState();
+        Position.of(state).applyTo(fresh);
+        for (int sign = -1; sign <= 1; sign += 2) {
+            int side = sign;
+            assertEquals(fresh.attackedSquares(sign), state.attackedSquares(sign),
+                    () -> "attacked squares of " + side + " in " + describe(state));
+            for (int square = 0; square < 64; square++) {
+                int sq = square;
+                assertEquals(fresh.attackerCount(square, sign), state.attackerCount(square, sign),
+                        () -> "attackers of " + sq + " by " + side + " in " + describe(state));
+                assertEquals(state.isSquareAttacked(square, sign, state.occupied()), state.isSquareAttacked(square, sign),
+                        () -> "attack on " + sq + " by " + side + " in " + describe(state));
+            }
+        }
+    }
+
+    private static BoardState load(String fen) {
+        BoardState state = new BoardState();
+        Fen.parse(fen).applyTo(state);
+        return state;
+    }
+
+    private static String describe(BoardState state) {
+        return Fen.write(Position.of(state));
+    }
+}
@@ -0,0 +1,110 @@
+package com.marcos.chess.engine;
+
+import com.marcos.chess.Fen;
+import com.marcos.chess.Game;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StaticExchangeTest {
+
+    private final StaticExchange exchange = new StaticExchange();
+
+    @Test
+    void undefendedPawn() {
+        assertEquals(100, see("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1", "e1e5"));
+    }
+
+    @Test
+    void knightForPawnLoses() {
+        // Nxe5 Nxe5 Rxe5 Bxe5 Bxe5 ... the knight is gone for a pawn
+        assertEquals(-200, see("1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1", "d3e5"));
+    }
+
+    @Test
+    void rookBehindRookJoinsIn() {
+        // Alone the rook loses itself for a pawn, with the second one behind it the pawn is won
+        assertEquals(-400, see("4r1k1/8/4p3/8/8/8/8/4R1K1 w - - 0 1", "e1e6"));
+        assertEquals(100, see("4r1k1/8/4p3/8/8/8/4R3/4R1K1 w - - 0 1", "e2e6"));
+    }
+
+    @Test
+    void queenBehindRookJoinsIn() {
+        assertEquals(100, see("4r1k1/8/4p3/8/8/8/4R3/4Q1K1 w - - 0 1", "e2e6"));
+        // With the queen in front it goes for the pawn, the rooks behind only trade each other
+        assertEquals(-800, see("4r1k1/4r3/4p3/8/8/8/4Q3/4R1K1 w - - 0 1", "e2e6"));
+    }
+
+    @Test
+    void bishopBehindPawnJoinsIn() {
+        // dxe5 Nxe5 and the bishop on b2 takes back along the diagonal the pawn opened
+        assertEquals(100, see("4k3/8/2n5/4p3/3P4/8/1B6/4K3 w - - 0 1", "d4e5"));
+    }
+
+    @Test
+    void enPassant() {
+        assertEquals(100, see("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1", "e5d6"));
+        assertEquals(0, see("4k3/2p5/8/3pP3/8/8/8/4K3 w - d6 0 1", "e5d6"));
+    }
+
+    @Test
+    void kingCannotTakeBackOnACoveredSquare() {
+        assertEquals(-400, see("3k4/3p4/8/8/8/8/8/3RK3 w - - 0 1", "d1d7"));
+        assertEquals(100, see("3k4/3p4/8/8/8/8/3R4/3RK3 w - - 0 1", "d2d7"));
+    }
+
+    @Test
+    void capturePromotes() {
+        // The rook and a new queen for the pawn
+        assertEquals(1300, see("1r2k3/P7/8/8/8/8/8/4K3 w - - 0 1", "a7b8q"));
+        // The king takes the queen back, still a rook up
+        assertEquals(400, see("1rk5/P7/8/8/8/8/8/4K3 w - - 0 1", "a7b8q"));
+    }
+
+    @Test
+    void pawnTakingBackOnTheLastRankPromotes() {
+        // Rxb1 axb1=Q, the rook is lost and black has a queen
+        assertEquals(-1000, see("4k3/8/8/8/8/4K3/p7/1n5R w - - 0 1", "h1b1"));
+        // Bxb1 takes the new queen, in the end it is a rook for a knight and a pawn
+        assertEquals(-100, see("4k3/8/8/8/8/3BK3/p7/1n5R w - - 0 1", "h1b1"));
+    }
+
+    @Test
+    void quietMoveOntoAnAttackedSquare() {
+        assertEquals(0, see("4k3/8/8/8/8/8/8/R3K3 w - - 0 1", "a1a5"));
+        assertEquals(-300, see("4k3/8/8/8/1p6/8/8/1N2K3 w - - 0 1", "b1c3"));
+    }
+
+    @Test
+    void captureGainTellsWhetherAPieceHangs() {
+        // Undefended knight
+        assertEquals(300, gain("4k3/8/8/3n4/8/8/8/3RK3 w - - 0 1", "d5", 1));
+        // Defended knight attacked by a pawn
+        assertEquals(200, gain("4k3/8/4p3/3n4/2P5/8/8/4K3 w - - 0 1", "d5", 1));
+        // Defended knight attacked by a rook only
+        assertEquals(0, gain("4k3/8/4p3/3n4/8/8/8/3RK3 w - - 0 1", "d5", 1));
+        // Nothing of the other side there
+        assertEquals(0, gain("4k3/8/8/3N4/8/8/8/3RK3 w - - 0 1", "d5", 1));
+    }
+
+    private int see(String fen, String uci) {
+        Game game = Fen.load(fen);
+        return exchange.evaluate(game.getState(), find(game, uci));
+    }
+
+    private int gain(String fen, String square, int bySign) {
+        Game game = Fen.load(fen);
+        int index = (square.charAt(0) - 'a') + (square.charAt(1) - '1') * 8;
+        return exchange.captureGain(game.getState(), index, bySign);
+    }
+
+    // The legal move with that UCI name, so the flags are the ones the generator sets
+    static int find(Game game, String uci) {
+        MoveList moves = new MoveList();
+        game.generateLegalMoves(game.getCurrentPlayer(), moves);
+        for (int i = 0; i < moves.size(); i++) {
+            if (Moves.toUci(moves.get(i)).equals(uci)) return moves.get(i);
+        }
+        throw new AssertionError(uci + " is not legal in " + game.toFen());
+    }
+}
@@ -1 +1,3 @@
 rootProject.name = "My_Chess_Game"
+
+include("chess-core")
@@ -34,7 +34,9 @@ public class Board {
         this.windowsHeight = windowsHeight;
     }
 
-    public void drawBoard(GraphicsContext gc, int[][] board) {
+    // Pieces and the check square both come from the game being played
+    public void drawBoard(GraphicsContext gc, Game game) {
+        int[][] board = game.getBoard();
         Color white = Color.WHITE;
         Color black = Color.LIGHTSTEELBLUE;
         Color checkColor = Color.DARKRED;
@@ -46,11 +48,8 @@ public class Board {
         double x = (windowsWidth - size * squareSize) / 2.0;
         double y = (windowsHeight - size * squareSize) / 2.0;
 
-        // Find the positions of the kings
-        int[] whiteKingPos = findKingPosition(board, 6);
-        int[] blackKingPos = findKingPosition(board, -6);
-        boolean whiteKingInCheck = whiteKingPos != null && isCheck(board, whiteKingPos[0], whiteKingPos[1], -1);
-        boolean blackKingInCheck = blackKingPos != null && isCheck(board, blackKingPos[0], blackKingPos[1], 1);
+        // Only the side to move can be in check, the game answers from its cached legal moves
+        int[] checkedKingPos = game.isInCheck() ? game.getKingPosition(game.getCurrentPlayer()) : null;
 
         // Render chessboard
         for (int i = 0; i < board.length; i++) {
@@ -65,7 +64,7 @@ public class Board {
 
                 gc.fillRect(x1, y1, squareSize, squareSize);
 
-                if ((whiteKingInCheck && whiteKingPos != null && i == whiteKingPos[0] && j == whiteKingPos[1]) || (blackKingInCheck && blackKingPos != null && i == blackKingPos[0] && j == blackKingPos[1])) {
+                if (checkedKingPos != null && i == checkedKingPos[0] && j == checkedKingPos[1]) {
                     gc.setFill(checkColor);
                     gc.fillRect(x1, y1, squareSize, squareSize);
                 }
@@ -104,7 +103,8 @@ public class Board {
         }
     }
 
-    public void drawBoardWithHighlights(GraphicsContext gc, int[][] board, List<int[]> highlights) {
+    public void drawBoardWithHighlights(GraphicsContext gc, Game game, List<int[]> highlights) {
+        int[][] board = game.getBoard();
         Color white = Color.WHITE;
         Color black = Color.LIGHTSTEELBLUE;
         Color highlightColor = Color.BLUE;
@@ -117,11 +117,7 @@ public class Board {
         double x = (windowsWidth - size * squareSize) / 2.0;
         double y = (windowsHeight - size * squareSize) / 2.0;
 
-        int[] whiteKingPos = findKingPosition(board, 6);
-        int[] blackKingPos = findKingPosition(board, -6);
-
-        boolean whiteKingInCheck = whiteKingPos != null && isCheck(board, whiteKingPos[0], whiteKingPos[1], -1);
-        boolean blackKingInCheck = blackKingPos != null && isCheck(board, blackKingPos[0], blackKingPos[1], 1);
+        int[] checkedKingPos = game.isInCheck() ? game.getKingPosition(game.getCurrentPlayer()) : null;
 
         for (int i = 0; i < board.length; i++) {
             for (int j = 0; j < board[i].length; j++) {
@@ -133,7 +129,7 @@ public class Board {
                 double y1 = y + i * squareSize;
 
                 gc.fillRect(x1, y1, squareSize, squareSize);
-                if ((whiteKingInCheck && whiteKingPos != null && i == whiteKingPos[0] && j == whiteKingPos[1]) || (blackKingInCheck && blackKingPos != null && i == blackKingPos[0] && j == blackKingPos[1])) {
+                if (checkedKingPos != null && i == checkedKingPos[0] && j == checkedKingPos[1]) {
                     gc.setFill(checkColor);
                     gc.fillRect(x1, y1, squareSize, squareSize);
                 }
@@ -162,39 +158,6 @@ public class Board {
         drawcoords(gc, x, y);
     }
 
-    private int[] findKingPosition(int[][] board, int kingValue) {
-        for (int i = 0; i < board.length; i++) {
-            for (int j = 0; j < board[i].length; j++) {
-                if (board[i][j] == kingValue) {
-                    return new int[]{i, j};
-                }
-            }
-        }
-        return null;
-    }
-
-    public boolean isCheck(int[][] board, int kingX, int kingY, int opponent) {
-        for (int i = 0; i < board.length; i++) {
-            for (int j = 0; j < board[i].length; j++) {
-                if (Integer.signum(board[i][j]) == opponent) {
-                    List<int[]> possibleMoves = calculatePossibleMoves(board, i, j);
-                    for (int[] move : possibleMoves) {
-                        if (move[0] == kingX && move[1] == kingY) {
-                            return true;
-                        }
-                    }
-                }
-            }
-        }
-        return false;
-    }
-
-    private List<int[]> calculatePossibleMoves(int[][] board, int x, int y) {
-        Game tempGame = new Game(8);
-        tempGame.setBoard(board);
-        return tempGame.calculatePossibleMoves(x, y);
-    }
-
     private boolean isHighlighted(List<int[]> highlights, int i, int j) {
         for (int[] highlight : highlights) {
             if (highlight[0] == i && highlight[1] == j) {
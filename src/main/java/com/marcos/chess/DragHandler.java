@@ -1,6 +1,7 @@
 package com.marcos.chess;
 
 import javafx.animation.TranslateTransition;
+import javafx.application.Platform;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseEvent;
@@ -37,11 +38,13 @@ public class DragHandler {
     private final IA ia;
     private final boolean isMultiplayer;
     private boolean isAnimating = false;
+    private boolean aiThinking = false;
     private ImageView movingPiece = null;
     private double animationProgress = 0;
     private AnimationTimer animator = null;
     private static final double DELAY = 0.5;
     private GameSession gameSession;
+    private boolean gameOver = false;
 
     public DragHandler(Board board, Game game, Canvas canvas, Pane pieceLayer, boolean isMultiplayer) {
         this.board = board;
@@ -71,7 +74,9 @@ public class DragHandler {
     }
 
     public void MousePressed(MouseEvent e) {
+        if (aiThinking) return;
         cleanupAnimation();
+        if (gameOver) return;
 
         int[][] board = game.getBoard();
         int[] pos = getCoord(e.getX(), e.getY());
@@ -84,7 +89,7 @@ public class DragHandler {
             if (selectedPiece != 0 && Integer.signum(selectedPiece) == game.getCurrentPlayer()) {
                 possibleMoves = game.calculatePossibleMoves(fromX, fromY);
                 redrawWithHighlight();
-                board[fromX][fromY] = 0;
+                game.setPiece(fromX, fromY, 0);
             } else {
                 selectedPiece = 0;
                 clear();
@@ -98,69 +103,80 @@ public class DragHandler {
     private void handleAIMove() {
         PauseTransition pause = new PauseTransition(Duration.seconds(DELAY));
         pause.setOnFinished(event -> {
-            IA.Move aiMove = ia.makeMove(game, -1);
-            if (aiMove != null) {
-                isAnimating = true;
-                int piece = game.getBoard()[aiMove.fromX][aiMove.fromY];
-
-                // Check if this is a castling move
-                boolean isCastling = Math.abs(piece) == 6 && Math.abs(aiMove.fromY - aiMove.toY) == 2;
-
-                game.getBoard()[aiMove.fromX][aiMove.fromY] = 0;
-
-                // If castling, handle rook movement
-                if (isCastling) {
-                    if (aiMove.toY > aiMove.fromY) {
-                        game.performKingsideCastle(aiMove.toX);
-                    } else {
-                        game.performQueensideCastle(aiMove.toX);
-                    }
+            // The search runs on its own thread, the board is only touched again once the move is back
+            aiThinking = true;
+            ia.makeMoveAsync(game, -1, Platform::runLater, aiMove -> {
+                aiThinking = false;
+                playAIMove(aiMove);
+            });
+        });
+        pause.play();
+    }
+
+    private void playAIMove(IA.Move aiMove) {
+        if (aiMove != null) {
+            isAnimating = true;
+            int piece = game.getBoard()[aiMove.fromX][aiMove.fromY];
+
+            // Check if this is a castling move
+            boolean isCastling = Math.abs(piece) == 6 && Math.abs(aiMove.fromY - aiMove.toY) == 2;
+
+            game.setPiece(aiMove.fromX, aiMove.fromY, 0);
+
+            // If castling, handle rook movement
+            if (isCastling) {
+                if (aiMove.toY > aiMove.fromY) {
+                    game.performKingsideCastle(aiMove.toX);
+                } else {
+                    game.performQueensideCastle(aiMove.toX);
                 }
+            }
 
-                redraw();
+            redraw();
 
-                // Create animation
-                ImageView aiPiece = new ImageView(board.obtainImage(piece));
-                aiPiece.setFitWidth(board.getSquareSize());
-                aiPiece.setFitHeight(board.getSquareSize());
+            // Create animation
+            ImageView aiPiece = new ImageView(board.obtainImage(piece));
+            aiPiece.setFitWidth(board.getSquareSize());
+            aiPiece.setFitHeight(board.getSquareSize());
 
-                double offsetSquares = 4.6;
-                double boardStartX = (board.getWindowsWidth() - (board.getSize() * board.getSquareSize())) / 2.0 + (offsetSquares * board.getSquareSize());
-                double boardStartY = (board.getWindowsHeight() - (board.getSize() * board.getSquareSize())) / 2.0;
+            double offsetSquares = 4.6;
+            double boardStartX = (board.getWindowsWidth() - (board.getSize() * board.getSquareSize())) / 2.0 + (offsetSquares * board.getSquareSize());
+            double boardStartY = (board.getWindowsHeight() - (board.getSize() * board.getSquareSize())) / 2.0;
 
-                double startX = boardStartX + (aiMove.fromY * board.getSquareSize());
-                double startY = boardStartY + (aiMove.fromX * board.getSquareSize());
-                double endX = boardStartX + (aiMove.toY * board.getSquareSize());
-                double endY = boardStartY + (aiMove.toX * board.getSquareSize());
+            double startX = boardStartX + (aiMove.fromY * board.getSquareSize());
+            double startY = boardStartY + (aiMove.fromX * board.getSquareSize());
+            double endX = boardStartX + (aiMove.toY * board.getSquareSize());
+            double endY = boardStartY + (aiMove.toX * board.getSquareSize());
 
-                aiPiece.setLayoutX(startX);
-                aiPiece.setLayoutY(startY);
+            aiPiece.setLayoutX(startX);
+            aiPiece.setLayoutY(startY);
 
-                pieceLayer.getChildren().add(aiPiece);
+            pieceLayer.getChildren().add(aiPiece);
 
-                TranslateTransition transition = new TranslateTransition(Duration.millis(400), aiPiece);
-                transition.setFromX(0);
-                transition.setFromY(0);
-                transition.setToX(endX - startX);
-                transition.setToY(endY - startY);
+            TranslateTransition transition = new TranslateTransition(Duration.millis(400), aiPiece);
+            transition.setFromX(0);
+            transition.setFromY(0);
+            transition.setToX(endX - startX);
+            transition.setToY(endY - startY);
 
-                transition.setOnFinished(e -> {
-                    pieceLayer.getChildren().remove(aiPiece);
-                    // Place the piece in its final position
-                    game.getBoard()[aiMove.toX][aiMove.toY] = piece;
+            transition.setOnFinished(e -> {
+                pieceLayer.getChildren().remove(aiPiece);
+                // Place the piece in its final position
+                game.setPiece(aiMove.toX, aiMove.toY, piece);
 
-                    // Update the last move
-                    game.updateLastMove(aiMove.fromX, aiMove.fromY, aiMove.toX, aiMove.toY);
+                // Update the last move
+                game.updateLastMove(aiMove.fromX, aiMove.fromY, aiMove.toX, aiMove.toY);
 
-                    redraw();
-                    isAnimating = false;
-                    changePlayer();
-                });
+                redraw();
+                isAnimating = false;
+                changePlayer();
+                checkGameOver();
+            });
 
-                transition.play();
-            }
-        });
-        pause.play();
+            transition.play();
+        } else {
+            checkGameOver();
+        }
     }
 
     public void MouseReleased(MouseEvent mouseEvent) {
@@ -169,8 +185,10 @@ public class DragHandler {
         int[] pos = getCoord(mouseEvent.getX(), mouseEvent.getY());
         boolean validMove = false;
 
-        if (pos != null && possibleMoves != null) {
-            validMove = possibleMoves.stream().anyMatch(move -> move[0] == pos[0] && move[1] == pos[1]);
+        if (pos != null) {
+            // The piece was lifted off the board when the drag started, put it back to check the move
+            game.setPiece(fromX, fromY, selectedPiece);
+            validMove = game.isLegal(fromX, fromY, pos[0], pos[1]);
 
             if (validMove) {
                 // special moves first
@@ -179,8 +197,8 @@ public class DragHandler {
                 boolean isEnPassant = game.isEnPassantCapture(fromX, fromY, pos[0], pos[1]);
 
                 // Then make the basic move
-                game.getBoard()[pos[0]][pos[1]] = selectedPiece;
-                game.getBoard()[fromX][fromY] = 0;
+                game.setPiece(pos[0], pos[1], selectedPiece);
+                game.setPiece(fromX, fromY, 0);
 
                 // castling
                 if (Math.abs(selectedPiece) == 6 && Math.abs(pos[1] - startY) == 2) {
@@ -195,7 +213,7 @@ public class DragHandler {
                 if (isEnPassant) {
                     int capturedPawnRow = fromX;
                     int capturedPawnCol = pos[1];
-                    game.getBoard()[capturedPawnRow][capturedPawnCol] = 0;
+                    game.setPiece(capturedPawnRow, capturedPawnCol, 0);
                 }
 
                 // pawn promotion
@@ -211,16 +229,17 @@ public class DragHandler {
                 redraw();
                 changePlayer();
 
-                if (!isMultiplayer) {
-                    handleAIMove();
-                } else if (gameSession != null) {
+                if (isMultiplayer && gameSession != null) {
                     gameSession.makeMove(fromX, fromY, pos[0], pos[1]);
                 }
+                if (!checkGameOver() && !isMultiplayer) {
+                    handleAIMove();
+                }
             }
         }
 
         if (!validMove) {
-            game.getBoard()[fromX][fromY] = selectedPiece;
+            game.setPiece(fromX, fromY, selectedPiece);
         }
 
         selectedPiece = 0;
@@ -243,9 +262,9 @@ public class DragHandler {
         canvas.getGraphicsContext2D().clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
 
         if (possibleMoves != null) {
-            board.drawBoardWithHighlights(canvas.getGraphicsContext2D(), game.getBoard(), possibleMoves);
+            board.drawBoardWithHighlights(canvas.getGraphicsContext2D(), game, possibleMoves);
         } else {
-            board.drawBoard(canvas.getGraphicsContext2D(), game.getBoard());
+            board.drawBoard(canvas.getGraphicsContext2D(), game);
         }
 
         if (selectedPiece != 0) {
@@ -257,12 +276,12 @@ public class DragHandler {
 
     private void redraw() {
         canvas.getGraphicsContext2D().clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
-        board.drawBoard(canvas.getGraphicsContext2D(), game.getBoard());
+        board.drawBoard(canvas.getGraphicsContext2D(), game);
     }
 
     private void redrawWithHighlight() {
         canvas.getGraphicsContext2D().clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
-        board.drawBoardWithHighlights(canvas.getGraphicsContext2D(), game.getBoard(), possibleMoves);
+        board.drawBoardWithHighlights(canvas.getGraphicsContext2D(), game, possibleMoves);
     }
 
     private void clear() {
@@ -274,6 +293,30 @@ public class DragHandler {
         game.switchPlayer();
     }
 
+    // Called after every move (ours, the AI's or the opponent's), shows the result and stops the game when it is over
+    public boolean checkGameOver() {
+        GameStatus status = game.getStatus();
+        if (!status.isOver()) return false;
+
+        gameOver = true;
+        Stage dialog = new Stage();
+        dialog.initModality(Modality.APPLICATION_MODAL);
+        dialog.initOwner((Stage) canvas.getScene().getWindow());
+        dialog.setTitle("Game Over");
+
+        Text message = new Text(status.describe(game.getCurrentPlayer()));
+        message.setFont(Font.font("Arial", FontWeight.BOLD, 18));
+
+        VBox box = new VBox(message);
+        box.setAlignment(Pos.CENTER);
+        box.setPadding(new Insets(30));
+        box.setStyle("-fx-background-color: white;");
+
+        dialog.setScene(new Scene(box));
+        dialog.show();
+        return true;
+    }
+
     private int[] getCoord(double x, double y) {
         double boardStartX = (board.getWindowsWidth() - board.getSize() * board.getSquareSize()) / 2.0;
         double boardStartY = (board.getWindowsHeight() - board.getSize() * board.getSquareSize()) / 2.0;
@@ -320,11 +363,13 @@ public class DragHandler {
 
             pieceBox.getChildren().addAll(pieceImage, pieceName);
             pieceBox.setOnMouseClicked(e -> {
-                game.getBoard()[toX][toY] = piece;
+                // Still the pawn on the square here, so the halfmove clock is reset
+                game.updateLastMove(fromX, fromY, toX, toY);
+                game.setPiece(toX, toY, piece);
                 redraw();
                 menu.close();
                 changePlayer();
-                if (!isMultiplayer) {
+                if (!checkGameOver() && !isMultiplayer) {
                     handleAIMove();
                 }
             });
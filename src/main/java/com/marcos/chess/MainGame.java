@@ -13,4 +13,8 @@ public class MainGame {
     public static void resetGameInstance(int size) {
         sharedGameInstance = new Game(size);
     }
+
+    public static void setGameInstance(Game game) {
+        sharedGameInstance = game;
+    }
 }
\ No newline at end of file
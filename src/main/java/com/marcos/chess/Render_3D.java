@@ -101,6 +101,8 @@ public class Render_3D implements Renderer {
         private int promotionX = -1;
         private int promotionY = -1;
         private int promotionColor = 0;
+        private boolean gameOver = false;
+        private boolean aiThinking = false;
 
         private boolean introAnimationDone = false;
         private float introTimer = 0f;
@@ -412,6 +414,7 @@ public class Render_3D implements Renderer {
         }
 
         private void handleSelection(int x, int y) {
+            if (gameOver || aiThinking) return;
             int piece = game.getBoard()[x][y];
 
             if (selectedPieceNode == null) {
@@ -518,8 +521,8 @@ public class Render_3D implements Renderer {
             AnimationControl kingAnim = new AnimationControl(pieceNode,
                     new Vector3f((fromY - 3.5f), 0.2f, (fromX - 3.5f)),
                     new Vector3f((toY - 3.5f), 0.2f, (toX - 3.5f)), liftHeight, moveDuration, () -> {
-                game.getBoard()[toX][toY] = movingPiece;
-                game.getBoard()[fromX][fromY] = 0;
+                game.setPiece(toX, toY, movingPiece);
+                game.setPiece(fromX, fromY, 0);
 
                 if (game.isEnPassantCapture(fromX, fromY, toX, toY)) {
                     game.performEnPassantCapture(toX, toY);
@@ -536,7 +539,7 @@ public class Render_3D implements Renderer {
                 }
 
                 // Check for check
-                int[] enemyKingPos = findKingPosition(game.getBoard(), -game.getCurrentPlayer() * 6);
+                int[] enemyKingPos = game.getKingPosition(-game.getCurrentPlayer());
                 if (enemyKingPos != null && game.isKingThreatened(game.getBoard(), enemyKingPos[0], enemyKingPos[1], game.getCurrentPlayer())) {
                     Audio.getInstance(assetManager).playCheckSound();
                 }
@@ -544,7 +547,7 @@ public class Render_3D implements Renderer {
                 // Promotion pawn to queen
                 if (Math.abs(movingPiece) == 1 && (toX == 0 || toX == 7)) {
                     int queenValue = 5 * Integer.signum(movingPiece);
-                    game.getBoard()[toX][toY] = queenValue;
+                    game.setPiece(toX, toY, queenValue);
                     boardNode.detachChild(pieceNode);
                     Node newQueenNode = loadPieceModel(queenValue);
                     if (newQueenNode != null) {
@@ -555,8 +558,8 @@ public class Render_3D implements Renderer {
                 }
 
                 // Check if the king is threatened
-                int[] whiteKingPos = findKingPosition(game.getBoard(), 6);
-                int[] blackKingPos = findKingPosition(game.getBoard(), -6);
+                int[] whiteKingPos = game.getKingPosition(1);
+                int[] blackKingPos = game.getKingPosition(-1);
 
                 
                 if (whiteKingPos != null && game.isKingThreatened(game.getBoard(), whiteKingPos[0], whiteKingPos[1], -1)) {
@@ -596,7 +599,7 @@ public class Render_3D implements Renderer {
                 }
 
                 changePlayer();
-                if (!isMultiplayer && game.getCurrentPlayer() == -1) {
+                if (!checkGameOver() && !isMultiplayer && game.getCurrentPlayer() == -1) {
                     handleAIMove();
                 }
             });
@@ -604,24 +607,35 @@ public class Render_3D implements Renderer {
             pieceNode.addControl(kingAnim);
         }
 
-        // Find king's position
-        private int[] findKingPosition(int[][] board, int kingValue) {
-            for (int i = 0; i < board.length; i++) {
-                for (int j = 0; j < board[i].length; j++) {
-                    if (board[i][j] == kingValue) {
-                        return new int[]{i, j};
-                    }
-                }
-            }
-            return null;
-        }
-
         private void changePlayer() {
             game.switchPlayer();
         }
 
+        // Stops the game with a message on screen once the side to move is mated or it is a draw
+        private boolean checkGameOver() {
+            GameStatus status = game.getStatus();
+            if (!status.isOver()) return false;
+
+            gameOver = true;
+            BitmapText text = new BitmapText(guiFont);
+            text.setSize(guiFont.getCharSet().getRenderedSize() * 2);
+            text.setText(status.describe(game.getCurrentPlayer()));
+            text.setLocalTranslation((settings.getWidth() - text.getLineWidth()) / 2,
+                    settings.getHeight() / 2f + text.getLineHeight(), 0);
+            guiNode.attachChild(text);
+            return true;
+        }
+
         private void handleAIMove() {
-            IA.Move aiMove = ia.makeMove(game, -1);
+            // The search runs on its own thread, the move comes back on the render thread
+            aiThinking = true;
+            ia.makeMoveAsync(game, -1, this::enqueue, aiMove -> {
+                aiThinking = false;
+                playAIMove(aiMove);
+            });
+        }
+
+        private void playAIMove(IA.Move aiMove) {
             if (aiMove != null) {
                 int piece = game.getBoard()[aiMove.fromX][aiMove.fromY];
 
@@ -658,8 +672,8 @@ public class Render_3D implements Renderer {
                         new Vector3f((aiMove.fromY - 3.5f), 0.2f, (aiMove.fromX - 3.5f)), 
                         new Vector3f((aiMove.toY - 3.5f), 0.2f, (aiMove.toX - 3.5f)), 
                         liftHeight, moveDuration, () -> {
-                            game.getBoard()[aiMove.toX][aiMove.toY] = piece;
-                            game.getBoard()[aiMove.fromX][aiMove.fromY] = 0;
+                            game.setPiece(aiMove.toX, aiMove.toY, piece);
+                            game.setPiece(aiMove.fromX, aiMove.fromY, 0);
 
                             if (isCastling) {
                                 if (aiMove.toY > aiMove.fromY) {
@@ -671,10 +685,13 @@ public class Render_3D implements Renderer {
 
                             game.updateLastMove(aiMove.fromX, aiMove.fromY, aiMove.toX, aiMove.toY);
                             changePlayer();
+                            checkGameOver();
                     });
 
                     pieceToMove.addControl(kingAnim);
                 }
+            } else {
+                checkGameOver();
             }
         }
 
@@ -734,7 +751,8 @@ public class Render_3D implements Renderer {
                 }
             }
 
-            int[][] board = game.getBoard();
+            // Built on the jME thread, so read the published snapshot rather than the live board
+            int[][] board = game.getSnapshot().toBoard();
             for (int i = 0; i < board.length; i++) {
                 for (int j = 0; j < board[i].length; j++) {
                     if (board[i][j] != 0) {
@@ -800,7 +818,8 @@ public class Render_3D implements Renderer {
                 }
             }
 
-            int[][] board = game.getBoard();
+            // Built on the jME thread, so read the published snapshot rather than the live board
+            int[][] board = game.getSnapshot().toBoard();
             for (int i = 0; i < board.length; i++) {
                 for (int j = 0; j < board[i].length; j++) {
                     int piece = board[i][j];
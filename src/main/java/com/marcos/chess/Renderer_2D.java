@@ -69,7 +69,7 @@ public class Renderer_2D implements Renderer {
         pieceLayer.setMouseTransparent(true);
         pieceLayer.setPrefSize(windowsWidth, windowsHeight);
 
-        board.drawBoard(canvas.getGraphicsContext2D(), game.getBoard());
+        board.drawBoard(canvas.getGraphicsContext2D(), game);
 
         handler = new DragHandler(board, game, canvas, pieceLayer, isMultiplayer);
         if (gameSession != null) {
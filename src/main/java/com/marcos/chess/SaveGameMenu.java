@@ -101,6 +101,7 @@ public class SaveGameMenu {
             if (selected != null) {
                 Game game = GameSaver.loadGame(selected.getName());
                 if (game != null) {
+                    MainGame.setGameInstance(game);
                     Renderer renderer = new Renderer_2D(windowsWidth, windowsHeight);
                     ((Renderer_2D)renderer).setStage(stage);  // Set stage
                     ((Renderer_2D)renderer).setCurrentProfile(selected.getName());  // Set profile name
@@ -193,8 +194,8 @@ public class SaveGameMenu {
             // Change this line: use player = 1 for white
             IA.Move aiMove = ia.makeMove(game, 1);  // AI plays as white
             if (aiMove != null) {
-                game.getBoard()[aiMove.toX][aiMove.toY] = game.getBoard()[aiMove.fromX][aiMove.fromY];
-                game.getBoard()[aiMove.fromX][aiMove.fromY] = 0;
+                game.setPiece(aiMove.toX, aiMove.toY, game.getBoard()[aiMove.fromX][aiMove.fromY]);
+                game.setPiece(aiMove.fromX, aiMove.fromY, 0);
                 game.updateLastMove(aiMove.fromX, aiMove.fromY, aiMove.toX, aiMove.toY);
                 game.switchPlayer();  // Switch to black (player's turn)
             }
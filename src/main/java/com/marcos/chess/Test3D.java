@@ -96,6 +96,7 @@ public class Test3D implements Renderer {
         private Vector3f lastCameraPosition;
         private Vector3f lastCameraDirection;
         private boolean isPromotionPending = false;
+        private boolean aiThinking = false;
         private int promotionX = -1;
         private int promotionY = -1;
         private int promotionColor = 0;
@@ -302,6 +303,7 @@ public class Test3D implements Renderer {
         }
 
         private void handleSelection(int x, int y) {
+            if (aiThinking) return;
             int piece = game.getBoard()[x][y];
 
             if (selectedPieceNode == null) {
@@ -408,8 +410,8 @@ public class Test3D implements Renderer {
             AnimationControl kingAnim = new AnimationControl(pieceNode, 
                 new Vector3f((fromY - 3.5f), 0.2f, (fromX - 3.5f)), 
                 new Vector3f((toY - 3.5f), 0.2f, (toX - 3.5f)), liftHeight, moveDuration, () -> {
-                    game.getBoard()[toX][toY] = movingPiece;
-                    game.getBoard()[fromX][fromY] = 0;
+                    game.setPiece(toX, toY, movingPiece);
+                    game.setPiece(fromX, fromY, 0);
 
                     if (game.isEnPassantCapture(fromX, fromY, toX, toY)) {
                         game.performEnPassantCapture(toX, toY);
@@ -428,7 +430,7 @@ public class Test3D implements Renderer {
                     // Promotion pawn to queen
                     if (Math.abs(movingPiece) == 1 && (toX == 0 || toX == 7)) {
                         int queenValue = 5 * Integer.signum(movingPiece);
-                        game.getBoard()[toX][toY] = queenValue;
+                        game.setPiece(toX, toY, queenValue);
                         boardNode.detachChild(pieceNode);
                         Node newQueenNode = loadPieceModel(queenValue);
                         if (newQueenNode != null) {
@@ -452,7 +454,15 @@ public class Test3D implements Renderer {
         }
 
         private void handleAIMove() {
-            IA.Move aiMove = ia.makeMove(game, -1);
+            // The search runs on its own thread, the move comes back on the render thread
+            aiThinking = true;
+            ia.makeMoveAsync(game, -1, this::enqueue, aiMove -> {
+                aiThinking = false;
+                playAIMove(aiMove);
+            });
+        }
+
+        private void playAIMove(IA.Move aiMove) {
             if (aiMove != null) {
                 int piece = game.getBoard()[aiMove.fromX][aiMove.fromY];
 
@@ -467,8 +477,8 @@ public class Test3D implements Renderer {
                     float moveDuration = 0.5f;
 
                     AnimationControl anim = new AnimationControl(pieceToMove, new Vector3f((aiMove.fromY - 3.5f), 0.2f, (aiMove.fromX - 3.5f)), new Vector3f((aiMove.toY - 3.5f), 0.2f, (aiMove.toX - 3.5f)), liftHeight, moveDuration, () -> {
-                                game.getBoard()[aiMove.toX][aiMove.toY] = piece;
-                                game.getBoard()[aiMove.fromX][aiMove.fromY] = 0;
+                                game.setPiece(aiMove.toX, aiMove.toY, piece);
+                                game.setPiece(aiMove.fromX, aiMove.fromY, 0);
 
                                 if (game.isEnPassantCapture(aiMove.fromX, aiMove.fromY, aiMove.toX, aiMove.toY)) {
                                     game.performEnPassantCapture(aiMove.toX, aiMove.toY);
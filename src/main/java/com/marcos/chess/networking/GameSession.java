@@ -62,12 +62,18 @@ public class GameSession {
                     Move move = (Move) in.readObject();
                     if (move != null) {
                         Platform.runLater(() -> {
-                            game.getBoard()[move.toX][move.toY] = game.getBoard()[move.fromX][move.fromY];
-                            game.getBoard()[move.fromX][move.fromY] = 0;
+                            // Never trust the other side, anything that is not legal here is dropped
+                            if (!game.isLegal(move.fromX, move.fromY, move.toX, move.toY)) {
+                                System.out.println("Ignoring illegal move from opponent: " + move.fromX + "," + move.fromY + " -> " + move.toX + "," + move.toY);
+                                return;
+                            }
+                            game.setPiece(move.toX, move.toY, game.getBoard()[move.fromX][move.fromY]);
+                            game.setPiece(move.fromX, move.fromY, 0);
                             game.updateLastMove(move.fromX, move.fromY, move.toX, move.toY);
                             game.switchPlayer();
                             if (handler != null) {
                                 handler.redrawBoard();
+                                handler.checkGameOver();
                             }
                         });
                     }
@@ -101,15 +107,3 @@ public class GameSession {
         this.in = in;
     }
 }
-
-class Move implements Serializable {
-    private static final long serialVersionUID = 1L;
-    public final int fromX, fromY, toX, toY;
-
-    public Move(int fromX, int fromY, int toX, int toY) {
-        this.fromX = fromX;
-        this.fromY = fromY;
-        this.toX = toX;
-        this.toY = toY;
-    }
-}
\ No newline at end of file